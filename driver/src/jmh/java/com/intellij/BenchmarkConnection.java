@@ -0,0 +1,27 @@
+package com.intellij;
+
+import com.couchbase.client.java.Cluster;
+import com.couchbase.client.java.ClusterOptions;
+import com.couchbase.client.java.env.ClusterEnvironment;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Properties;
+
+/**
+ * Connection to a cluster which is never reached: benchmarks use it only to create statements and result sets.
+ */
+public final class BenchmarkConnection {
+    private static final String HOST = "127.0.0.1";
+
+    private BenchmarkConnection() {
+    }
+
+    @NotNull
+    public static CouchbaseConnection open(@NotNull Properties properties) {
+        ClusterEnvironment environment = ClusterEnvironment.create();
+        Cluster cluster = Cluster.connect(HOST, ClusterOptions.clusterOptions("benchmark", "benchmark")
+                .environment(environment));
+        return new CouchbaseConnection(new ClusterConnection(cluster, environment), new CouchbaseJdbcDriver(),
+                new CouchbaseClientURI(CouchbaseClientURI.PREFIX + HOST, properties), properties);
+    }
+}
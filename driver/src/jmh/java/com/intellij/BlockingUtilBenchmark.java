@@ -0,0 +1,61 @@
+package com.intellij;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Waits for simulated query responses from one virtual thread each. Without pinning, one operation takes about
+ * the latency whatever the number of waits; pinned waits would be serialized on the carrier threads.
+ * Requires Java 21.
+ */
+@State(Scope.Benchmark)
+public class BlockingUtilBenchmark {
+    @Param({"10000"})
+    public int waits;
+
+    @Param({"20"})
+    public int latencyMillis;
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if (Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads require Java 21");
+        }
+        executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public long virtualThreadWaits() throws Exception {
+        Duration latency = Duration.ofMillis(latencyMillis);
+        List<Future<Integer>> results = new ArrayList<>(waits);
+        for (int i = 0; i < waits; i++) {
+            int id = i;
+            results.add(executor.submit(() -> BlockingUtil.await(Mono.delay(latency).thenReturn(id))));
+        }
+        long sum = 0;
+        for (Future<Integer> result : results) {
+            sum += result.get();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,30 @@
+package com.intellij;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Properties;
+
+@State(Scope.Benchmark)
+public class ClientUriBenchmark {
+    private static final String URI = "jdbc:couchbase:node1.example.com:11210,node2.example.com:11210/travel-sample" +
+            "?sslenabled=true&verifyServerCertificate=false&kv.timeout=10s&query.timeout=75s";
+
+    private Properties properties;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        properties = new Properties();
+        properties.setProperty("user", "Administrator");
+        properties.setProperty("password", "password");
+        properties.setProperty("meta.sampling.size", "100");
+    }
+
+    @Benchmark
+    public Object parse() {
+        return new CouchbaseClientURI(URI, properties).getClusterKey();
+    }
+}
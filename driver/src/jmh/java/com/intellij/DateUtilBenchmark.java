@@ -0,0 +1,41 @@
+package com.intellij;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+@State(Scope.Benchmark)
+public class DateUtilBenchmark {
+    @Param({"UTC", "Europe/Berlin"})
+    public String timeZone;
+
+    private Calendar calendar;
+    private Timestamp timestamp;
+    private Date date;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        calendar = Calendar.getInstance(TimeZone.getTimeZone(timeZone));
+        timestamp = new Timestamp(1_600_000_000_000L);
+        date = new Date(1_600_000_000_000L);
+    }
+
+    @Benchmark
+    public Timestamp timestampFromUtc() throws SQLException {
+        return DateUtil.considerTimeZone(timestamp, calendar, DateUtil.Direction.FROM_UTC);
+    }
+
+    @Benchmark
+    public Date dateToUtc() throws SQLException {
+        return DateUtil.considerTimeZone(date, calendar, DateUtil.Direction.TO_UTC);
+    }
+}
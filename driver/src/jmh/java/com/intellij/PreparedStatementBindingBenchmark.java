@@ -0,0 +1,49 @@
+package com.intellij;
+
+import com.couchbase.client.java.query.QueryOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Setting parameters of a prepared statement and binding them to query options, as done by every execution.
+ */
+@State(Scope.Benchmark)
+public class PreparedStatementBindingBenchmark {
+    private static final String SQL = "UPDATE `travel-sample` SET name = ?, age = ?, score = ?, active = ?, " +
+            "updated = ?, balance = ? WHERE META().id = ?";
+
+    private CouchbaseConnection connection;
+    private CouchbasePreparedStatement statement;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = BenchmarkConnection.open(new Properties());
+        statement = (CouchbasePreparedStatement) connection.prepareStatement(SQL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        statement.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public QueryOptions bind() throws SQLException {
+        statement.setString(1, "name");
+        statement.setInt(2, 42);
+        statement.setDouble(3, 0.5);
+        statement.setBoolean(4, true);
+        statement.setLong(5, 1_600_000_000_000L);
+        statement.setBigDecimal(6, BigDecimal.TEN);
+        statement.setString(7, "user::42");
+        return statement.bindParameters();
+    }
+}
@@ -0,0 +1,31 @@
+package com.intellij;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class SqlLikePatternBenchmark {
+    @Param({"%", "travel-sample", "travel%", "tr_vel\\_sample%"})
+    public String pattern;
+
+    private CouchbaseSqlLikePattern compiled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compiled = CouchbaseSqlLikePattern.create(pattern);
+    }
+
+    @Benchmark
+    public CouchbaseSqlLikePattern create() {
+        return CouchbaseSqlLikePattern.create(pattern);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return compiled.matches("travel_sample");
+    }
+}
@@ -0,0 +1,38 @@
+package com.intellij.meta;
+
+import com.intellij.resultset.Documents;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Schema inference from sampled documents, one operation samples {@value #DOCUMENTS} documents.
+ */
+@State(Scope.Benchmark)
+public class DocumentSchemaBenchmark {
+    private static final int DOCUMENTS = 100;
+
+    @Param({"1024", "102400"})
+    public int documentSize;
+
+    private List<byte[]> documents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        documents = Documents.createRows(DOCUMENTS, documentSize);
+    }
+
+    @Benchmark
+    public List<ColumnInfo> sample() {
+        DocumentSchema schema = new DocumentSchema();
+        for (byte[] document : documents) {
+            schema.add(document);
+        }
+        return schema.getColumns();
+    }
+}
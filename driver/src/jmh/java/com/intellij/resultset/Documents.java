@@ -0,0 +1,52 @@
+package com.intellij.resultset;
+
+import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.json.JsonObject;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic documents of a given size with scalar, array and nested fields.
+ */
+public final class Documents {
+    private Documents() {
+    }
+
+    @NotNull
+    public static JsonObject create(int index, int size) {
+        Random random = new Random(index);
+        JsonObject address = JsonObject.create()
+                .put("street", "Main street " + random.nextInt(1000))
+                .put("city", "City " + random.nextInt(100))
+                .put("geo", JsonObject.create().put("lat", random.nextDouble()).put("lon", random.nextDouble()));
+        JsonObject document = JsonObject.create()
+                .put("id", "doc::" + index)
+                .put("type", "user")
+                .put("age", random.nextInt(100))
+                .put("score", random.nextDouble())
+                .put("active", random.nextBoolean())
+                .put("created", System.currentTimeMillis())
+                .put("tags", JsonArray.from("a", "b", "c"))
+                .put("address", address);
+        JsonArray events = JsonArray.create();
+        while (document.toBytes().length + events.toBytes().length < size) {
+            events.add(JsonObject.create()
+                    .put("kind", "event" + random.nextInt(10))
+                    .put("at", random.nextLong())
+                    .put("payload", Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong())));
+        }
+        return document.put("events", events);
+    }
+
+    @NotNull
+    public static List<byte[]> createRows(int count, int size) {
+        List<byte[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(create(i, size).toBytes());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,75 @@
+package com.intellij.resultset;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.intellij.resultset.CouchbaseResultSetMetaData.createColumn;
+
+/**
+ * Access to rows of {@link CouchbaseListResultSet}, shaped as results of {@code DatabaseMetaData.getTables}.
+ */
+@State(Scope.Benchmark)
+public class ListResultSetBenchmark {
+    private static final int ROWS = 1000;
+    private static final String[] COLUMNS = {"TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "TABLE_TYPE", "REMARKS"};
+
+    private List<Map<String, Object>> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("TABLE_CAT", null);
+            row.put("TABLE_SCHEM", "default");
+            row.put("TABLE_NAME", "bucket" + i);
+            row.put("TABLE_TYPE", "TABLE");
+            row.put("REMARKS", null);
+            rows.add(row);
+        }
+    }
+
+    private CouchbaseListResultSet createResultSet() {
+        CouchbaseListResultSet resultSet = new CouchbaseListResultSet(rows);
+        resultSet.setMetadata(new CouchbaseResultSetMetaData(Arrays.asList(
+                createColumn("TABLE_CAT", "string"),
+                createColumn("TABLE_SCHEM", "string"),
+                createColumn("TABLE_NAME", "string"),
+                createColumn("TABLE_TYPE", "string"),
+                createColumn("REMARKS", "string"))));
+        return resultSet;
+    }
+
+    @Benchmark
+    public void getObjectByIndex(Blackhole blackhole) throws SQLException {
+        try (CouchbaseListResultSet resultSet = createResultSet()) {
+            while (resultSet.next()) {
+                for (int i = 1; i <= COLUMNS.length; i++) {
+                    blackhole.consume(resultSet.getObject(i));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void getStringByLabel(Blackhole blackhole) throws SQLException {
+        try (CouchbaseListResultSet resultSet = createResultSet()) {
+            while (resultSet.next()) {
+                for (String column : COLUMNS) {
+                    blackhole.consume(resultSet.getString(column));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.intellij.resultset;
+
+import com.intellij.BenchmarkConnection;
+import com.intellij.CouchbaseConnection;
+import com.intellij.CouchbaseStatement;
+import com.intellij.DriverPropertyInfoHelper;
+import com.intellij.DriverPropertyInfoHelper.RowDecoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * Decoding of query rows through {@link CouchbaseReactiveResultSet#next()} and {@code getObject},
+ * one operation reads every column of {@value #ROWS} rows.
+ */
+@State(Scope.Benchmark)
+public class ReactiveResultSetBenchmark {
+    private static final int ROWS = 100;
+
+    @Param({"1024", "102400"})
+    public int documentSize;
+
+    @Param({"object", "lazy"})
+    public String decoding;
+
+    @Param({"single", "projection"})
+    public String columns;
+
+    private List<byte[]> rows;
+    private Function<byte[], Row> decoder;
+    private CouchbaseConnection connection;
+    private CouchbaseStatement statement;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        rows = Documents.createRows(ROWS, documentSize);
+        decoder = RowDecoding.valueOf(decoding.toUpperCase(Locale.ENGLISH)) == RowDecoding.LAZY ? LazyJsonRow::new : JsonObjectRow::decode;
+        Properties properties = new Properties();
+        properties.setProperty(DriverPropertyInfoHelper.RESULTSET_COLUMNS, columns);
+        connection = BenchmarkConnection.open(properties);
+        statement = connection.createStatement();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        statement.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public void readAll(Blackhole blackhole) throws SQLException {
+        ReactiveRows reactiveRows = new ReactiveRows(Flux.fromIterable(rows).map(decoder), ROWS);
+        try (CouchbaseReactiveResultSet resultSet = new CouchbaseReactiveResultSet(statement, reactiveRows, Mono.empty())) {
+            int columnCount = -1;
+            while (resultSet.next()) {
+                if (columnCount == -1) {
+                    columnCount = resultSet.getMetaData().getColumnCount();
+                }
+                for (int i = 1; i <= columnCount; i++) {
+                    blackhole.consume(resultSet.getObject(i));
+                }
+            }
+        }
+    }
+}
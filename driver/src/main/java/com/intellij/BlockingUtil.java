@@ -0,0 +1,53 @@
+package com.intellij;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Waits for reactive results on {@link CompletableFuture}, which parks the waiting thread without holding monitors,
+ * so virtual threads unmount from their carrier while waiting.
+ * Unlike {@link Mono#block()}, interrupting the waiting thread cancels the subscription.
+ */
+public final class BlockingUtil {
+    private BlockingUtil() {
+    }
+
+    /**
+     * @return value of the mono or null if it completes empty
+     */
+    @Nullable
+    public static <T> T await(@NotNull Mono<T> mono) {
+        CompletableFuture<T> future = mono.toFuture();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw Exceptions.propagate(e);
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * @return the first element or null if the flux completes empty
+     */
+    @Nullable
+    public static <T> T awaitFirst(@NotNull Flux<T> flux) {
+        return await(flux.next());
+    }
+
+    /**
+     * @return the last element or null if the flux completes empty
+     */
+    @Nullable
+    public static <T> T awaitLast(@NotNull Flux<T> flux) {
+        return await(flux.takeLast(1).next());
+    }
+}
@@ -2,23 +2,49 @@ package com.intellij;
 
 import com.couchbase.client.java.Cluster;
 import com.couchbase.client.java.env.ClusterEnvironment;
+import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.query.QueryOptions;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 public class ClusterConnection {
+    private static final Logger LOG = Logger.getLogger(ClusterConnection.class.getName());
+    private static final String DELETE_PREPARED = "DELETE FROM system:prepareds WHERE name = $1";
+    private static final String DELETE_ACTIVE_REQUEST = "DELETE FROM system:active_requests WHERE clientContextID = $1";
+
     private final Cluster cluster;
     private final ClusterEnvironment clusterEnvironment;
+    private final PreparedStatementCache preparedStatementCache;
+    private final SchemaCache schemaCache = new SchemaCache();
 
     public ClusterConnection(@NotNull Cluster cluster, @NotNull ClusterEnvironment clusterEnvironment) {
+        this(cluster, clusterEnvironment, 0);
+    }
+
+    public ClusterConnection(@NotNull Cluster cluster, @NotNull ClusterEnvironment clusterEnvironment,
+                             int preparedCacheSize) {
         this.cluster = cluster;
         this.clusterEnvironment = clusterEnvironment;
+        this.preparedStatementCache = new PreparedStatementCache(preparedCacheSize, this::deletePrepared);
     }
 
     public Cluster getCluster() {
         return cluster;
     }
 
+    public PreparedStatementCache getPreparedStatementCache() {
+        return preparedStatementCache;
+    }
+
+    public SchemaCache getSchemaCache() {
+        return schemaCache;
+    }
+
     public void close() {
+        schemaCache.flush();
         cluster.disconnect();
         clusterEnvironment.shutdown();
     }
@@ -28,4 +54,21 @@ public class ClusterConnection {
             cluster.bucket(defaultBucket);
         }
     }
+
+    /**
+     * Asks the query service to stop requests tagged with the client context id.
+     */
+    public void cancelRequest(@NotNull String clientContextId) {
+        cluster.reactive()
+                .query(DELETE_ACTIVE_REQUEST, QueryOptions.queryOptions().parameters(JsonArray.from(clientContextId)))
+                .flatMap(result -> result.rowsAsObject().then())
+                .subscribe(null, e -> LOG.log(Level.FINE, "Failed to cancel request " + clientContextId, e));
+    }
+
+    private void deletePrepared(@NotNull String name) {
+        cluster.reactive()
+                .query(DELETE_PREPARED, QueryOptions.queryOptions().parameters(JsonArray.from(name)))
+                .flatMap(result -> result.rowsAsObject().then())
+                .subscribe(null, e -> LOG.log(Level.FINE, "Failed to delete evicted prepared statement " + name, e));
+    }
 }
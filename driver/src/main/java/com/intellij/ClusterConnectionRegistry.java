@@ -0,0 +1,224 @@
+package com.intellij;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reference-counted registry of {@link ClusterConnection}s.
+ * Connections to the same endpoint with the same credentials share one {@code ClusterEnvironment} and
+ * {@code Cluster}. The cluster is disconnected when the last connection is released and the idle grace period
+ * expires without the cluster being acquired again.
+ */
+public final class ClusterConnectionRegistry {
+    private static final ClusterConnectionRegistry INSTANCE = new ClusterConnectionRegistry();
+
+    private final Map<Object, Entry> entries = new HashMap<>();
+    private final Map<ClusterConnection, Entry> entriesByConnection = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * Guards the maps and reference counts only, clusters are bootstrapped outside of it.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private ScheduledExecutorService reaper;
+
+    ClusterConnectionRegistry() {
+    }
+
+    public static ClusterConnectionRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    ClusterConnection acquire(@NotNull CouchbaseClientURI uri) throws SQLException {
+        return acquire(uri.getClusterKey(), uri.getClusterIdleTimeout(), uri::createClusterConnection,
+                uri.getDefaultBucket());
+    }
+
+    /**
+     * The cluster is created outside the registry lock, so bootstrapping one endpoint does not hold up the others.
+     * Concurrent acquisitions of a key that is being created wait for the same cluster.
+     *
+     * @param factory creates the cluster if none is open for the key
+     * @param defaultBucket opened on the shared cluster if it is reused
+     */
+    ClusterConnection acquire(@NotNull Object key, long idleTimeout, @NotNull Factory factory,
+                              @Nullable String defaultBucket) throws SQLException {
+        Entry entry;
+        boolean isCreator;
+        lock.lock();
+        try {
+            entry = entries.get(key);
+            isCreator = entry == null;
+            if (isCreator) {
+                entry = new Entry(key, idleTimeout);
+                entries.put(key, entry);
+            }
+            if (entry.pendingClose != null) {
+                entry.pendingClose.cancel(false);
+                entry.pendingClose = null;
+            }
+            entry.refCount++;
+        } finally {
+            lock.unlock();
+        }
+        if (isCreator) {
+            misses.incrementAndGet();
+            return create(entry, factory);
+        }
+        hits.incrementAndGet();
+        ClusterConnection connection = await(entry);
+        connection.initConnection(defaultBucket);
+        return connection;
+    }
+
+    private ClusterConnection create(@NotNull Entry entry, @NotNull Factory factory) throws SQLException {
+        ClusterConnection connection;
+        try {
+            connection = factory.create();
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                entries.remove(entry.key, entry);
+            } finally {
+                lock.unlock();
+            }
+            entry.connection.completeExceptionally(e);
+            throw e;
+        }
+        lock.lock();
+        try {
+            entriesByConnection.put(connection, entry);
+        } finally {
+            lock.unlock();
+        }
+        entry.connection.complete(connection);
+        return connection;
+    }
+
+    private ClusterConnection await(@NotNull Entry entry) throws SQLException {
+        try {
+            return entry.connection.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // give the reference back once the cluster is created
+            entry.connection.thenAccept(this::release);
+            throw new SQLException("Interrupted while waiting for the cluster connection", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw new SQLException(cause.getMessage(), ((SQLException) cause).getSQLState(), cause);
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    void release(@NotNull ClusterConnection connection) {
+        lock.lock();
+        try {
+            Entry entry = entriesByConnection.get(connection);
+            if (entry == null) {
+                connection.close();
+                return;
+            }
+            if (--entry.refCount > 0) {
+                return;
+            }
+            if (entry.idleTimeout <= 0) {
+                remove(entry);
+            } else {
+                entry.pendingClose = getReaper().schedule(() -> closeIfIdle(entry), entry.idleTimeout, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeIfIdle(@NotNull Entry entry) {
+        lock.lock();
+        try {
+            if (entry.refCount == 0 && entries.get(entry.key) == entry) {
+                remove(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(@NotNull Entry entry) {
+        ClusterConnection connection = entry.connection.join();
+        entries.remove(entry.key);
+        entriesByConnection.remove(connection);
+        entry.pendingClose = null;
+        connection.close();
+    }
+
+    private ScheduledExecutorService getReaper() {
+        if (reaper == null) {
+            reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "couchbase-jdbc-cluster-reaper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return reaper;
+    }
+
+    /**
+     * @return number of connections that reused an already open cluster
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of connections that had to bootstrap a new cluster
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of cluster environments that are currently open, including idle ones
+     */
+    public int getLiveEnvironmentCount() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    interface Factory {
+        @NotNull
+        ClusterConnection create() throws SQLException;
+    }
+
+    private static class Entry {
+        private final Object key;
+        /**
+         * Completed by the thread that creates the cluster.
+         */
+        private final CompletableFuture<ClusterConnection> connection = new CompletableFuture<>();
+        private final long idleTimeout;
+        private int refCount = 0;
+        private ScheduledFuture<?> pendingClose;
+
+        private Entry(Object key, long idleTimeout) {
+            this.key = key;
+            this.idleTimeout = idleTimeout;
+        }
+    }
+}
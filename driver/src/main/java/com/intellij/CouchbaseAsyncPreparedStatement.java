@@ -0,0 +1,23 @@
+package com.intellij;
+
+import com.intellij.resultset.Row;
+import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking execution of prepared N1QL queries with the currently bound parameters,
+ * available with {@code preparedStatement.unwrap(CouchbaseAsyncPreparedStatement.class)}.
+ *
+ * @see CouchbaseAsyncStatement
+ */
+public interface CouchbaseAsyncPreparedStatement {
+    @NotNull
+    CompletableFuture<ResultSet> executeQueryAsync() throws SQLException;
+
+    @NotNull
+    Publisher<Row> executeQueryReactive() throws SQLException;
+}
@@ -0,0 +1,28 @@
+package com.intellij;
+
+import com.intellij.resultset.Row;
+import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking execution of N1QL queries, available with {@code statement.unwrap(CouchbaseAsyncStatement.class)}.
+ * Statements are sent to the query service as is, without extended statements or the key-value fast path.
+ */
+public interface CouchbaseAsyncStatement {
+    /**
+     * @return future completed with the result set once the first row or the end of the result arrives;
+     * it fails with {@link SQLException} wrapped into {@link java.util.concurrent.CompletionException}
+     */
+    @NotNull
+    CompletableFuture<ResultSet> executeQueryAsync(@NotNull String sql) throws SQLException;
+
+    /**
+     * @return cold publisher of result rows executing the query on each subscription
+     */
+    @NotNull
+    Publisher<Row> executeQueryReactive(@NotNull String sql) throws SQLException;
+}
@@ -2,22 +2,59 @@ package com.intellij;
 
 import com.couchbase.client.java.Cluster;
 import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.query.QueryMetrics;
 import com.couchbase.client.java.query.QueryOptions;
 import com.couchbase.client.java.query.ReactiveQueryResult;
+import com.intellij.DriverPropertyInfoHelper.RowDecoding;
+import com.intellij.metrics.ConnectionMetrics;
+import com.intellij.metrics.DriverMetrics;
+import com.intellij.metrics.QueryMetricsSnapshot;
+import com.intellij.metrics.StatementKind;
 import com.intellij.resultset.CouchbaseReactiveResultSet;
+import com.intellij.resultset.ReactiveRows;
+import com.intellij.resultset.Row;
 import com.intellij.resultset.CouchbaseSimpleResultSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.util.concurrent.Queues;
 
 import java.sql.*;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Properties;
-
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import static com.intellij.BlockingUtil.await;
+import static com.intellij.BlockingUtil.awaitFirst;
+import static com.intellij.BlockingUtil.awaitLast;
+import static com.intellij.DriverPropertyInfoHelper.BATCH_PARALLELISM;
+import static com.intellij.DriverPropertyInfoHelper.BATCH_PARALLELISM_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.FETCH_SIZE_BYTES;
+import static com.intellij.DriverPropertyInfoHelper.FETCH_SIZE_BYTES_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.QUERY_LIMIT_REWRITE;
+import static com.intellij.DriverPropertyInfoHelper.RESULTSET_DECODING;
+import static com.intellij.DriverPropertyInfoHelper.RESULTSET_DECODING_DEFAULT;
 import static com.intellij.DriverPropertyInfoHelper.ScanConsistency.getQueryScanConsistency;
+import static com.intellij.DriverPropertyInfoHelper.getEnumProperty;
+import static com.intellij.DriverPropertyInfoHelper.getIntProperty;
+import static com.intellij.DriverPropertyInfoHelper.isTrue;
 
 @SuppressWarnings("RedundantThrows")
 public abstract class CouchbaseBaseStatement implements Statement {
@@ -25,9 +62,20 @@ public abstract class CouchbaseBaseStatement implements Statement {
     protected final Properties properties;
     protected final boolean isReadOnly;
     protected CouchbaseConnection connection;
-    protected ResultSet result;
+    protected volatile ResultSet result;
+    /**
+     * Guards {@link #result}: asynchronous executions register their result set from the thread completing them.
+     */
+    private final ReentrantLock resultLock = new ReentrantLock();
     private int fetchSize = Queues.SMALL_BUFFER_SIZE;
-    private boolean isClosed = false;
+    private int maxRows = 0;
+    private int fetchBytes;
+    private int queryTimeout = 0;
+    private volatile Execution execution = new Execution(null, null);
+    private volatile CouchbaseQueryMetrics lastMetrics = QueryMetricsSnapshot.EMPTY;
+    private final ConnectionMetrics connectionMetrics;
+    private final SlowQueryLog slowQueryLog;
+    private volatile boolean isClosed = false;
     private int updateCount = -1;
 
     CouchbaseBaseStatement(@NotNull CouchbaseConnection connection) {
@@ -35,23 +83,115 @@ public abstract class CouchbaseBaseStatement implements Statement {
         this.properties = connection.getProperties();
         this.cluster = connection.getCluster();
         this.isReadOnly = connection.isReadOnly();
+        this.connectionMetrics = connection.getMetrics();
+        this.slowQueryLog = connection.getSlowQueryLog();
+        this.fetchBytes = getIntProperty(properties, FETCH_SIZE_BYTES, FETCH_SIZE_BYTES_DEFAULT);
+        DriverMetrics.getInstance().statementOpened();
+    }
+
+    @NotNull
+    public Properties getProperties() {
+        return properties;
     }
 
     protected QueryOptions makeQueryOptions() {
-        return QueryOptions.queryOptions()
+        QueryOptions options = QueryOptions.queryOptions()
                 .scanConsistency(getQueryScanConsistency(properties))
                 .readonly(isReadOnly)
+                .clientContextId(execution.clientContextId)
                 .metrics(true);
+        if (queryTimeout > 0) {
+            options.timeout(Duration.ofSeconds(queryTimeout));
+        }
+        return options;
+    }
+
+    /**
+     * Starts a new execute call: its requests get a new client context id and {@link #cancel()} affects only them.
+     *
+     * @param parameters values bound to the statement, null for batches
+     */
+    protected void startExecution(@NotNull String sql, @Nullable Object[] parameters) {
+        execution = new Execution(sql, slowQueryLog != null && slowQueryLog.needsParameters() && parameters != null
+                ? parameters.clone() : null);
+        lastMetrics = QueryMetricsSnapshot.EMPTY;
+    }
+
+    /**
+     * @return consumer of metrics of a completed query of the current execution, publishing them as the metrics
+     * of the statement, adding them to the connection ones and writing the query to the slow query log
+     */
+    @NotNull
+    public Consumer<CouchbaseQueryMetrics> metricsRecorder() {
+        Execution current = execution;
+        return metrics -> {
+            lastMetrics = metrics;
+            connectionMetrics.record(metrics);
+            if (slowQueryLog != null && current.sql != null) {
+                slowQueryLog.log(cluster, current.sql, current.parameters, metrics);
+            }
+        };
+    }
+
+    /**
+     * @return rows that fail with {@link CancellationException} once the current execution is cancelled
+     */
+    @NotNull
+    public <T> Flux<T> cancellable(@NotNull Flux<T> rows) {
+        return execution.cancellable(rows);
+    }
+
+    /**
+     * @return request that fails with {@link CancellationException} once the current execution is cancelled
+     */
+    @NotNull
+    public <T> Mono<T> cancellable(@NotNull Mono<T> request) {
+        return execution.cancellable(request);
+    }
+
+    /**
+     * @return rows limited to {@link #getMaxRows()}, which record the latency of the current execution once they
+     * complete or reach the limit, or the error they fail with
+     */
+    @NotNull
+    public <T> Flux<T> recorded(@NotNull Flux<T> rows, @NotNull StatementKind kind) {
+        Execution current = execution;
+        Flux<T> limited = maxRows > 0 ? rows.take(maxRows, true) : rows;
+        return limited.doOnComplete(() -> current.recordExecution(kind)).doOnError(current::recordError);
+    }
+
+    /**
+     * Records the latency of the current execution unless it has already failed.
+     */
+    protected void recordExecution(@NotNull StatementKind kind) {
+        execution.recordExecution(kind);
+    }
+
+    /**
+     * Records the error of the current execution unless its rows have already reported it.
+     */
+    protected void recordError(@NotNull Throwable t) {
+        execution.recordError(t);
     }
 
     @Override
     public void close() throws SQLException {
-        if (result != null) {
-            result.close();
+        boolean wasClosed;
+        resultLock.lock();
+        try {
+            if (result != null) {
+                result.close();
+            }
+            result = null;
+            wasClosed = isClosed;
+            isClosed = true;
+        } finally {
+            resultLock.unlock();
         }
-        result = null;
         connection = null;
-        isClosed = true;
+        if (!wasClosed) {
+            DriverMetrics.getInstance().statementClosed();
+        }
     }
 
     void checkClosed() throws SQLException {
@@ -65,32 +205,170 @@ public abstract class CouchbaseBaseStatement implements Statement {
         return isClosed;
     }
 
+    /**
+     * @return the statement with a {@code LIMIT} of {@link #getMaxRows()} if {@code query.limit.rewrite} is enabled
+     */
+    @NotNull
+    protected String applyMaxRows(@NotNull String sql) {
+        if (maxRows > 0 && isTrue(properties.getProperty(QUERY_LIMIT_REWRITE))) {
+            return SqlUtil.limit(sql, maxRows);
+        }
+        return sql;
+    }
+
     protected boolean executeInner(@NotNull String sql, @NotNull Mono<ReactiveQueryResult> resultMono) throws SQLException {
         try {
-            ReactiveQueryResult result = Objects.requireNonNull(resultMono.block(), "Query did not return result");
+            ReactiveQueryResult result = Objects.requireNonNull(await(execution.cancellable(resultMono)),
+                    "Query did not return result");
             ResultSet resultSet;
             if (sql.toLowerCase(Locale.ENGLISH).startsWith("infer")) resultSet = listResultSet(result);
             else {
-                resultSet = new CouchbaseReactiveResultSet(this, result);
-                long mutationCount = ((CouchbaseReactiveResultSet) resultSet).getMutationCount();
-                if (mutationCount != -1) {
-                    resultSet.close();
-                    setNewResultSet(resultSet, mutationCount);
-                    return false;
+                ReactiveRows rows = CouchbaseReactiveResultSet.createRows(this, result);
+                CouchbaseReactiveResultSet reactiveResultSet = new CouchbaseReactiveResultSet(this, rows, result.metaData());
+                if (!SqlUtil.isQuery(sql)) {
+                    long mutationCount = await(Mono.fromFuture(getMutationCount(rows, reactiveResultSet)));
+                    if (mutationCount != -1) {
+                        reactiveResultSet.close();
+                        setNewResultSet(reactiveResultSet, mutationCount);
+                        return false;
+                    }
                 }
+                resultSet = reactiveResultSet;
             }
             setNewResultSet(resultSet);
             return true;
         } catch (Throwable t) {
-            throw new SQLException(t);
+            connectionMetrics.recordFailure();
+            throw CouchbaseError.toSQLException(t);
+        }
+    }
+
+    /**
+     * @return future completed with -1 once the first row arrives or with the mutation count
+     * once a statement without rows completes
+     */
+    @NotNull
+    private static CompletableFuture<Long> getMutationCount(@NotNull ReactiveRows rows,
+                                                            @NotNull CouchbaseReactiveResultSet resultSet) {
+        return rows.getBuffer().whenReady()
+                .thenCompose(hasRows -> hasRows ? CompletableFuture.completedFuture(-1L)
+                        : resultSet.getQueryMetaData().thenApply(CouchbaseReactiveResultSet::getMutationCount));
+    }
+
+    /**
+     * Builds the result set once the first row or the end of the result arrives, without blocking the caller
+     * or the thread that delivers the result. The result set becomes the current result of the statement,
+     * so closing or re-executing the statement closes it as for synchronous execution.
+     */
+    @NotNull
+    protected CompletableFuture<ResultSet> executeQueryAsyncInner(@NotNull Mono<ReactiveQueryResult> resultMono) {
+        Execution current = execution;
+        return current.cancellable(resultMono).toFuture()
+                .thenCompose(result -> {
+                    ReactiveRows rows = CouchbaseReactiveResultSet.createRows(this, result);
+                    ResultSet resultSet = new CouchbaseReactiveResultSet(this, rows, result.metaData());
+                    return rows.getBuffer().whenReady().thenApply(hasRows -> register(resultSet, current));
+                })
+                .handle((resultSet, t) -> {
+                    if (t != null) {
+                        connectionMetrics.recordFailure();
+                        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                        current.recordError(cause);
+                        throw new CompletionException(CouchbaseError.toSQLException(cause));
+                    }
+                    return resultSet;
+                });
+    }
+
+    /**
+     * @return rows of the query subject to {@link #getMaxRows()} and {@link #cancel()}
+     */
+    @NotNull
+    protected Flux<Row> executeQueryReactiveInner(@NotNull Mono<ReactiveQueryResult> resultMono) {
+        RowDecoding decoding = getEnumProperty(properties, RESULTSET_DECODING, RESULTSET_DECODING_DEFAULT);
+        return executeQueryReactiveInner(resultMono,
+                (result, decodeNanos) -> ReactiveRows.rows(result, decoding, decodeNanos));
+    }
+
+    /**
+     * @return undecoded JSON of rows subject to {@link #getMaxRows()} and {@link #cancel()}
+     */
+    @NotNull
+    protected Flux<byte[]> executeQueryRawInner(@NotNull Mono<ReactiveQueryResult> resultMono) {
+        return executeQueryReactiveInner(resultMono, (result, decodeNanos) -> result.rowsAs(byte[].class));
+    }
+
+    @NotNull
+    private <T> Flux<T> executeQueryReactiveInner(@NotNull Mono<ReactiveQueryResult> resultMono,
+                                                  @NotNull BiFunction<ReactiveQueryResult, LongAdder, Flux<T>> decoder) {
+        int limit = maxRows;
+        Consumer<CouchbaseQueryMetrics> recorder = metricsRecorder();
+        Flux<T> rows = resultMono.flatMapMany(result -> {
+            LongAdder decodeNanos = new LongAdder();
+            return decoder.apply(result, decodeNanos)
+                    .concatWith(result.metaData()
+                            .doOnNext(metaData -> recorder.accept(QueryMetricsSnapshot.of(metaData, decodeNanos.sum())))
+                            .then(Mono.empty()));
+        });
+        Flux<T> result = execution.cancellable(limit > 0 ? rows.take(limit, true) : rows)
+                .doOnError(t -> DriverMetrics.getInstance().recordError(t))
+                .onErrorMap(t -> !(t instanceof SQLException), CouchbaseError::toSQLException);
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return result.doOnComplete(() -> DriverMetrics.getInstance().recordExecution(StatementKind.N1QL, start));
+        });
+    }
+
+    /**
+     * Executes statements concurrently, at most {@code batch.parallelism} at a time.
+     *
+     * @return update count of every statement in the order of {@code statements}
+     * @throws BatchUpdateException if any of statements failed, failed ones have {@link #EXECUTE_FAILED} count
+     */
+    protected int[] executeBatchInner(@NotNull List<Mono<ReactiveQueryResult>> statements) throws SQLException {
+        int[] updateCounts = new int[statements.size()];
+        Arrays.fill(updateCounts, EXECUTE_FAILED);
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        int parallelism = Math.max(1, getIntProperty(properties, BATCH_PARALLELISM, BATCH_PARALLELISM_DEFAULT));
+        long start = System.nanoTime();
+        Consumer<CouchbaseQueryMetrics> recorder = metricsRecorder();
+        try {
+            awaitLast(execution.cancellable(Flux.range(0, statements.size())
+                    .flatMap(i -> statements.get(i)
+                            .flatMap(result -> result.rowsAsObject().then(result.metaData()))
+                            .doOnNext(metaData -> {
+                                updateCounts[i] = metaData.metrics()
+                                        .map(QueryMetrics::mutationCount)
+                                        .map(this::coalesceInt)
+                                        .orElse(SUCCESS_NO_INFO);
+                                recorder.accept(QueryMetricsSnapshot.of(metaData, 0));
+                            })
+                            .onErrorResume(e -> {
+                                connectionMetrics.recordFailure();
+                                DriverMetrics.getInstance().recordError(e);
+                                errors.add(e);
+                                return Mono.empty();
+                            }), parallelism)));
+        } catch (Throwable t) {
+            DriverMetrics.getInstance().recordError(t);
+            throw new BatchUpdateException(t.getMessage(), updateCounts, t);
+        }
+        DriverMetrics.getInstance().recordExecution(StatementKind.N1QL, start);
+        Throwable error = errors.peek();
+        if (error != null) {
+            BatchUpdateException exception = new BatchUpdateException(
+                    errors.size() + " of " + statements.size() + " batched statements failed: " + error.getMessage(),
+                    updateCounts, error);
+            errors.stream().skip(1).forEach(exception::addSuppressed);
+            throw exception;
         }
+        return updateCounts;
     }
 
     @Nullable
     private ResultSet listResultSet(@NotNull ReactiveQueryResult result) {
-        List<Object> list = result.rowsAs(JsonArray.class)
-            .map(JsonArray::toList)
-            .blockFirst();
+        List<Object> list = awaitFirst(result.rowsAs(JsonArray.class)
+            .map(JsonArray::toList));
         return list == null ? null : new CouchbaseSimpleResultSet(list);
     }
 
@@ -99,11 +377,38 @@ public abstract class CouchbaseBaseStatement implements Statement {
     }
 
     protected void setNewResultSet(@Nullable ResultSet resultSet, long updateCount) throws SQLException {
-        if (result != null) {
-            result.close();
+        resultLock.lock();
+        try {
+            if (result != null) {
+                result.close();
+            }
+            result = resultSet;
+            this.updateCount = coalesceInt(updateCount);
+        } finally {
+            resultLock.unlock();
         }
-        result = resultSet;
-        this.updateCount = coalesceInt(updateCount);
+    }
+
+    /**
+     * Makes the result set of an asynchronous execution the current result, unless the statement was closed
+     * or executed again meanwhile: then the result set is closed and the execution fails.
+     */
+    @NotNull
+    private ResultSet register(@NotNull ResultSet resultSet, @NotNull Execution owner) {
+        resultLock.lock();
+        try {
+            if (!isClosed && execution == owner) {
+                setNewResultSet(resultSet);
+                return resultSet;
+            }
+            resultSet.close();
+        } catch (SQLException e) {
+            throw new CompletionException(e);
+        } finally {
+            resultLock.unlock();
+        }
+        throw new CompletionException(
+                new SQLException("Statement was closed or executed again before the result arrived"));
     }
 
     private int coalesceInt(long value) {
@@ -142,12 +447,18 @@ public abstract class CouchbaseBaseStatement implements Statement {
 
     @Override
     public <T> T unwrap(final Class<T> iface) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        if (iface == CouchbaseQueryMetrics.class) {
+            return iface.cast(lastMetrics);
+        }
+        throw new SQLException("Statement is not a wrapper for " + iface.getName());
     }
 
     @Override
     public boolean isWrapperFor(final Class<?> iface) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        return iface.isInstance(this) || iface == CouchbaseQueryMetrics.class;
     }
 
     @Override
@@ -186,13 +497,21 @@ public abstract class CouchbaseBaseStatement implements Statement {
     }
 
     @Override
-    public int getMaxRows() throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+    public int getMaxRows() {
+        return maxRows;
     }
 
+    /**
+     * Rows beyond the limit are never requested: the row stream is cancelled once the limit is reached.
+     * With {@code query.limit.rewrite} the limit is also pushed to the server as a {@code LIMIT} clause.
+     */
     @Override
     public void setMaxRows(int max) throws SQLException {
-        // todo
+        checkClosed();
+        if (max < 0) {
+            throw new SQLException("Max rows must be >= 0");
+        }
+        this.maxRows = max;
     }
 
     @Override
@@ -202,17 +521,28 @@ public abstract class CouchbaseBaseStatement implements Statement {
 
     @Override
     public int getQueryTimeout() throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        return queryTimeout;
     }
 
     @Override
     public void setQueryTimeout(int seconds) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        checkClosed();
+        if (seconds < 0) {
+            throw new SQLException("Query timeout must be >= 0");
+        }
+        this.queryTimeout = seconds;
     }
 
     @Override
     public void cancel() throws SQLException {
-        throw new SQLFeatureNotSupportedException("Couchbase provides no support for interrupting an operation.");
+        checkClosed();
+        Execution current = execution;
+        if (current.cancel() && current.wasInFlight) {
+            CouchbaseConnection connection = this.connection;
+            if (connection != null) {
+                connection.cancelRequest(current.clientContextId);
+            }
+        }
     }
 
     @Override
@@ -241,9 +571,16 @@ public abstract class CouchbaseBaseStatement implements Statement {
         return ResultSet.FETCH_FORWARD;
     }
 
+    /**
+     * Sets the number of rows requested first; later requests adapt to the consumer
+     * and are limited by {@link #setFetchBytes(int)}.
+     */
     @Override
     public void setFetchSize(int rows) throws SQLException {
-        this.fetchSize = rows;
+        if (rows < 0) {
+            throw new SQLException("Fetch size must be >= 0");
+        }
+        this.fetchSize = rows == 0 ? Queues.SMALL_BUFFER_SIZE : rows;
     }
 
     @Override
@@ -251,6 +588,24 @@ public abstract class CouchbaseBaseStatement implements Statement {
         return this.fetchSize;
     }
 
+    /**
+     * Limits the size of rows buffered or requested by result sets of this statement,
+     * defaults to {@code fetch.size.bytes}.
+     *
+     * @param bytes maximum size in bytes, 0 for no limit
+     */
+    public void setFetchBytes(int bytes) throws SQLException {
+        checkClosed();
+        if (bytes < 0) {
+            throw new SQLException("Fetch bytes must be >= 0");
+        }
+        this.fetchBytes = bytes;
+    }
+
+    public int getFetchBytes() {
+        return fetchBytes;
+    }
+
     @Override
     public int getResultSetConcurrency() throws SQLException {
         throw new SQLFeatureNotSupportedException();
@@ -275,4 +630,78 @@ public abstract class CouchbaseBaseStatement implements Statement {
     public ResultSet getGeneratedKeys() throws SQLException {
         throw new SQLFeatureNotSupportedException();
     }
+
+    /**
+     * Requests of a single execute call, tagged with a client context id that the query service
+     * lists in {@code system:active_requests}.
+     */
+    private static class Execution {
+        private final String clientContextId = UUID.randomUUID().toString();
+        private final String sql;
+        private final Object[] parameters;
+        private final Sinks.One<Boolean> cancellation = Sinks.one();
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean isRecorded = new AtomicBoolean();
+        /**
+         * Number of subscribed requests and row streams that have not terminated yet.
+         */
+        private final AtomicInteger activeRequests = new AtomicInteger();
+        private volatile boolean isCancelled = false;
+        /**
+         * Whether requests were running when the execution was cancelled, only then the server is asked to stop them.
+         */
+        private volatile boolean wasInFlight = false;
+
+        Execution(@Nullable String sql, @Nullable Object[] parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        <T> Flux<T> cancellable(Flux<T> flux) {
+            return flux.doOnSubscribe(s -> activeRequests.incrementAndGet())
+                    .doFinally(signal -> activeRequests.decrementAndGet())
+                    .takeUntilOther(cancellation.asMono())
+                    .concatWith(Mono.defer(this::cancelled));
+        }
+
+        <T> Mono<T> cancellable(Mono<T> mono) {
+            return mono.doOnSubscribe(s -> activeRequests.incrementAndGet())
+                    .doFinally(signal -> activeRequests.decrementAndGet())
+                    .takeUntilOther(cancellation.asMono())
+                    .switchIfEmpty(Mono.defer(this::cancelled));
+        }
+
+        /**
+         * Records the latency or the error of the execution, whichever comes first.
+         */
+        void recordExecution(@NotNull StatementKind kind) {
+            if (isRecorded.compareAndSet(false, true)) {
+                DriverMetrics.getInstance().recordExecution(kind, startNanos);
+            }
+        }
+
+        void recordError(@NotNull Throwable t) {
+            if (isRecorded.compareAndSet(false, true)) {
+                DriverMetrics.getInstance().recordError(t);
+            }
+        }
+
+        private <T> Mono<T> cancelled() {
+            return isCancelled ? Mono.error(new CancellationException("Statement was cancelled")) : Mono.empty();
+        }
+
+        /**
+         * @return false if the execution was already cancelled
+         */
+        synchronized boolean cancel() {
+            if (isCancelled) {
+                return false;
+            }
+            isCancelled = true;
+            // read before the cancellation terminates the requests
+            wasInFlight = activeRequests.get() > 0;
+            cancellation.tryEmitValue(Boolean.TRUE);
+            return true;
+        }
+    }
 }
@@ -5,6 +5,8 @@ import com.couchbase.client.core.env.*;
 import com.couchbase.client.java.Cluster;
 import com.couchbase.client.java.ClusterOptions;
 import com.couchbase.client.java.env.ClusterEnvironment;
+import com.intellij.metrics.DriverMetrics;
+import com.intellij.metrics.SdkMeter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -24,7 +26,8 @@ class CouchbaseClientURI {
     private static final String HTTPS_SCHEMA = "couchbases://";
 
     private static final Set<String> JDBC_KEYS = new HashSet<>(ContainerUtil.map(
-            Arrays.asList(USER, PASSWORD, ENABLE_SSL, VERIFY_SERVER_CERTIFICATE, VERIFY_HOSTNAMES, DEFAULT_BUCKET),
+            Arrays.asList(USER, PASSWORD, ENABLE_SSL, VERIFY_SERVER_CERTIFICATE, VERIFY_HOSTNAMES, DEFAULT_BUCKET,
+                    CLUSTER_IDLE_TIMEOUT, PREPARED_CACHE_SIZE, METRICS_EXPORTER),
             key -> key.toLowerCase(Locale.ENGLISH)));
 
     private final String connectionString;
@@ -36,6 +39,9 @@ class CouchbaseClientURI {
     private final boolean sslEnabled;
     private final boolean verifyServerCert;
     private final boolean verifyHostnames;
+    private final long clusterIdleTimeout;
+    private final int preparedCacheSize;
+    private final MetricsExporter metricsExporter;
 
     public CouchbaseClientURI(@NotNull String uri, @Nullable Properties info) {
         this.uri = uri;
@@ -69,6 +75,11 @@ class CouchbaseClientURI {
         this.sslEnabled = isTrue(getOption(info, options, ENABLE_SSL, ENABLE_SSL_DEFAULT));
         this.verifyServerCert = isTrue(getOption(info, options, VERIFY_SERVER_CERTIFICATE, VERIFY_SERVER_CERTIFICATE_DEFAULT));
         this.verifyHostnames = isTrue(getOption(info, options, VERIFY_HOSTNAMES, VERIFY_HOSTNAMES_DEFAULT));
+        this.clusterIdleTimeout = parseLong(getOption(info, options, CLUSTER_IDLE_TIMEOUT, null),
+                CLUSTER_IDLE_TIMEOUT_DEFAULT);
+        this.preparedCacheSize = (int) parseLong(getOption(info, options, PREPARED_CACHE_SIZE, null),
+                PREPARED_CACHE_SIZE_DEFAULT);
+        this.metricsExporter = parseEnum(getOption(info, options, METRICS_EXPORTER, null), METRICS_EXPORTER_DEFAULT);
         this.hosts = serverPart;
         this.defaultBucket = nsPart != null && !nsPart.isEmpty() ? nsPart : getOption(info, options, DEFAULT_BUCKET, null);
         this.connectionString = createConnectionString(serverPart, options);
@@ -110,17 +121,40 @@ class CouchbaseClientURI {
         return value != null ? value : defaultValue;
     }
 
+    private static long parseLong(@Nullable String value, long defaultValue) {
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return key identifying connections that may share one cluster environment:
+     * the same endpoint, security settings, credentials and settings of the shared cluster
+     */
+    @NotNull
+    Object getClusterKey() {
+        return Arrays.asList(sslEnabled, connectionString, userName, password, verifyServerCert, verifyHostnames,
+                metricsExporter, clusterIdleTimeout, preparedCacheSize);
+    }
+
     ClusterConnection createClusterConnection() throws SQLException {
         String connectionStringWithSchema = (sslEnabled ? HTTPS_SCHEMA : HTTP_SCHEMA) + connectionString;
         ClusterEnvironment.Builder builder = ClusterEnvironment.builder()
                 .load(new ConnectionStringPropertyLoader(connectionStringWithSchema));
         Authenticator authenticator = authenticate(builder);
+        if (metricsExporter == MetricsExporter.JMX) {
+            DriverMetrics.getInstance().registerMBeans();
+            builder.meter(new SdkMeter(DriverMetrics.getInstance()));
+        }
         ClusterEnvironment environment = builder.build();
         ClusterConnection clusterConnection = new ClusterConnection(
                 Cluster.connect(connectionStringWithSchema, ClusterOptions
                         .clusterOptions(authenticator)
                         .environment(environment)
-                ), environment);
+                ), environment, preparedCacheSize);
         clusterConnection.initConnection(defaultBucket);
         return clusterConnection;
     }
@@ -227,6 +261,13 @@ class CouchbaseClientURI {
         return verifyServerCert;
     }
 
+    /**
+     * @return milliseconds a shared cluster stays open after its last connection is closed
+     */
+    public long getClusterIdleTimeout() {
+        return clusterIdleTimeout;
+    }
+
     /**
      * Gets the list of hosts and params sent directly to Java SDK
      *
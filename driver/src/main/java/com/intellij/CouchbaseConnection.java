@@ -2,7 +2,10 @@ package com.intellij;
 
 import com.couchbase.client.java.Cluster;
 import com.intellij.executor.CouchbaseCustomStatementExecutor;
+import com.intellij.metrics.ConnectionMetrics;
+import com.intellij.metrics.DriverMetrics;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Array;
 import java.sql.Blob;
@@ -24,12 +27,19 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
 
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_PARALLELISM;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_PARALLELISM_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.getIntProperty;
+
 public class CouchbaseConnection implements Connection {
     private static final String DEFAULT_SCHEMA = "default";
     private final ClusterConnection cluster;
     private final CouchbaseJdbcDriver driver;
     private final CouchbaseClientURI uri;
     private final Properties properties;
+    private final ConnectionMetrics metrics = new ConnectionMetrics();
+    private final SlowQueryLog slowQueryLog;
+    private final SchemaRefresher schemaRefresher;
     private boolean isClosed = false;
     private boolean isReadOnly = false;
 
@@ -39,6 +49,10 @@ public class CouchbaseConnection implements Connection {
         this.driver = couchbaseJdbcDriver;
         this.uri = uri;
         this.properties = properties;
+        this.slowQueryLog = SlowQueryLog.create(properties);
+        this.schemaRefresher = new SchemaRefresher(getIntProperty(properties, META_SAMPLING_PARALLELISM,
+                META_SAMPLING_PARALLELISM_DEFAULT));
+        DriverMetrics.getInstance().connectionOpened();
     }
 
     public String getCatalog() throws SQLException {
@@ -50,7 +64,19 @@ public class CouchbaseConnection implements Connection {
         return cluster.getCluster();
     }
 
-    Properties getProperties() {
+    public PreparedStatementCache getPreparedStatementCache() {
+        return cluster.getPreparedStatementCache();
+    }
+
+    public SchemaCache getSchemaCache() {
+        return cluster.getSchemaCache();
+    }
+
+    SchemaRefresher getSchemaRefresher() {
+        return schemaRefresher;
+    }
+
+    public Properties getProperties() {
         return properties;
     }
 
@@ -61,13 +87,32 @@ public class CouchbaseConnection implements Connection {
     @Override
     public <T> T unwrap(Class<T> iface) throws SQLException {
         checkClosed();
-        return null;
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        if (iface == ConnectionMetrics.class) {
+            return iface.cast(metrics);
+        }
+        if (iface == SchemaCache.class) {
+            return iface.cast(getSchemaCache());
+        }
+        throw new SQLException("Connection is not a wrapper for " + iface.getName());
     }
 
     @Override
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
         checkClosed();
-        return false;
+        return iface.isInstance(this) || iface == ConnectionMetrics.class || iface == SchemaCache.class;
+    }
+
+    @NotNull
+    public ConnectionMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Nullable
+    SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
     }
 
     @Override
@@ -140,11 +185,25 @@ public class CouchbaseConnection implements Connection {
     @Override
     public void close() {
         if (!isClosed) {
-            cluster.close();
+            schemaRefresher.close();
+            ClusterConnectionRegistry.getInstance().release(cluster);
+            DriverMetrics.getInstance().connectionClosed();
         }
         isClosed = true;
     }
 
+    void cancelRequest(@NotNull String clientContextId) {
+        cluster.cancelRequest(clientContextId);
+    }
+
+    /**
+     * Restores per-connection state before the connection is handed out by a pool again.
+     */
+    void resetState() throws SQLException {
+        isReadOnly = false;
+        clearWarnings();
+    }
+
     @Override
     public boolean isClosed() {
         return isClosed;
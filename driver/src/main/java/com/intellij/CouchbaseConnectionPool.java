@@ -0,0 +1,162 @@
+package com.intellij;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of {@link CouchbasePooledConnection}s backing {@link CouchbaseDataSource}.
+ * Since all physical connections to the same cluster share one {@link ClusterConnection}, a pooled connection
+ * is cheap to keep around and is recycled as a whole.
+ */
+class CouchbaseConnectionPool implements ConnectionEventListener {
+    private final CouchbaseDataSource dataSource;
+    private final Semaphore permits;
+    private final Deque<CouchbasePooledConnection> idle = new ArrayDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong totalBorrowNanos = new AtomicLong();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private volatile boolean isClosed = false;
+
+    CouchbaseConnectionPool(@NotNull CouchbaseDataSource dataSource, int maxSize) {
+        this.dataSource = dataSource;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    Connection borrow(long timeoutMillis) throws SQLException {
+        checkClosed();
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out waiting for a pooled connection after " + timeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+        record(System.nanoTime() - start, totalWaitNanos, maxWaitNanos);
+        try {
+            Connection connection = takeIdleOrCreate().getConnection();
+            borrowCount.incrementAndGet();
+            record(System.nanoTime() - start, totalBorrowNanos, maxBorrowNanos);
+            return connection;
+        } catch (Throwable t) {
+            permits.release();
+            throw t;
+        }
+    }
+
+    private CouchbasePooledConnection takeIdleOrCreate() throws SQLException {
+        CouchbasePooledConnection pooled;
+        synchronized (idle) {
+            pooled = idle.pollFirst();
+        }
+        while (pooled != null && pooled.getPhysicalConnection().isClosed()) {
+            size.decrementAndGet();
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+        }
+        if (pooled != null) {
+            return pooled;
+        }
+        pooled = dataSource.getPooledConnection();
+        pooled.addConnectionEventListener(this);
+        size.incrementAndGet();
+        return pooled;
+    }
+
+    @Override
+    public void connectionClosed(ConnectionEvent event) {
+        CouchbasePooledConnection pooled = (CouchbasePooledConnection) event.getSource();
+        if (isClosed) {
+            discard(pooled);
+        } else {
+            synchronized (idle) {
+                idle.addFirst(pooled);
+            }
+        }
+        permits.release();
+    }
+
+    @Override
+    public void connectionErrorOccurred(ConnectionEvent event) {
+        discard((CouchbasePooledConnection) event.getSource());
+        permits.release();
+    }
+
+    private void discard(@NotNull CouchbasePooledConnection pooled) {
+        pooled.removeConnectionEventListener(this);
+        pooled.close();
+        size.decrementAndGet();
+    }
+
+    void close() {
+        isClosed = true;
+        List<CouchbasePooledConnection> closing;
+        synchronized (idle) {
+            closing = new ArrayList<>(idle);
+            idle.clear();
+        }
+        // closing may disconnect from the cluster, so it happens outside of the monitor
+        for (CouchbasePooledConnection pooled : closing) {
+            discard(pooled);
+        }
+    }
+
+    private void checkClosed() throws SQLException {
+        if (isClosed) {
+            throw new SQLException("Connection pool was previously closed.");
+        }
+    }
+
+    private static void record(long nanos, AtomicLong total, AtomicLong max) {
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    int getSize() {
+        return size.get();
+    }
+
+    int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    long getTotalWaitNanos() {
+        return totalWaitNanos.get();
+    }
+
+    long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    long getTotalBorrowNanos() {
+        return totalBorrowNanos.get();
+    }
+
+    long getMaxBorrowNanos() {
+        return maxBorrowNanos.get();
+    }
+}
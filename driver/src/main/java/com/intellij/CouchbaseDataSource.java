@@ -0,0 +1,255 @@
+package com.intellij;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static com.intellij.DriverPropertyInfoHelper.PASSWORD;
+import static com.intellij.DriverPropertyInfoHelper.USER;
+
+/**
+ * Data source with a built-in connection pool.
+ * <p>
+ * {@link #getConnection()} borrows a connection from the pool, closing it returns the connection to the pool.
+ * {@link #getPooledConnection()} creates physical connections for an external pool manager.
+ */
+public class CouchbaseDataSource implements DataSource, ConnectionPoolDataSource {
+    private static final int DEFAULT_MAX_POOL_SIZE = 10;
+    private static final long DEFAULT_CONNECTION_TIMEOUT = 30_000;
+
+    private final CouchbaseJdbcDriver driver = new CouchbaseJdbcDriver();
+    private String url;
+    private String user;
+    private String password;
+    private Properties properties = new Properties();
+    private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+    private long connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+    private int loginTimeout = 0;
+    private PrintWriter logWriter;
+    private volatile CouchbaseConnectionPool pool;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(@NotNull String url) {
+        this.url = url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(@Nullable String user) {
+        this.user = user;
+    }
+
+    public void setPassword(@Nullable String password) {
+        this.password = password;
+    }
+
+    public Properties getProperties() {
+        return properties;
+    }
+
+    public void setProperties(@NotNull Properties properties) {
+        this.properties = properties;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * Must be called before the first connection is borrowed.
+     */
+    public void setMaxPoolSize(int maxPoolSize) {
+        if (maxPoolSize <= 0) {
+            throw new IllegalArgumentException("Pool size should be positive: " + maxPoolSize);
+        }
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public long getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    /**
+     * @param connectionTimeout milliseconds to wait for a free connection when the pool is exhausted
+     */
+    public void setConnectionTimeout(long connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long timeout = loginTimeout > 0 ? TimeUnit.SECONDS.toMillis(loginTimeout) : connectionTimeout;
+        return getPool().borrow(timeout);
+    }
+
+    /**
+     * Not pooled: opens a new physical connection with the given credentials, closing it disconnects it.
+     * The pool only holds connections with the credentials of the data source.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return createConnection(username, password);
+    }
+
+    @Override
+    public CouchbasePooledConnection getPooledConnection() throws SQLException {
+        return new CouchbasePooledConnection(createConnection(user, password));
+    }
+
+    @Override
+    public CouchbasePooledConnection getPooledConnection(String user, String password) throws SQLException {
+        return new CouchbasePooledConnection(createConnection(user, password));
+    }
+
+    private CouchbaseConnection createConnection(@Nullable String user, @Nullable String password) throws SQLException {
+        if (url == null) {
+            throw new SQLException("Connection URL is not set");
+        }
+        Properties info = new Properties();
+        info.putAll(properties);
+        if (user != null) {
+            info.setProperty(USER, user);
+        }
+        if (password != null) {
+            info.setProperty(PASSWORD, password);
+        }
+        Connection connection = driver.connect(url, info);
+        if (connection == null) {
+            throw new SQLException("URL is not accepted by the driver: " + url);
+        }
+        return (CouchbaseConnection) connection;
+    }
+
+    private CouchbaseConnectionPool getPool() {
+        CouchbaseConnectionPool result = pool;
+        if (result == null) {
+            synchronized (this) {
+                result = pool;
+                if (result == null) {
+                    result = new CouchbaseConnectionPool(this, maxPoolSize);
+                    pool = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Closes idle pooled connections. Borrowed connections are closed when they are returned.
+     */
+    public void close() {
+        CouchbaseConnectionPool closing;
+        synchronized (this) {
+            closing = pool;
+            pool = null;
+        }
+        if (closing != null) {
+            closing.close();
+        }
+    }
+
+    /**
+     * @return number of physical connections owned by the pool
+     */
+    public int getPoolSize() {
+        CouchbaseConnectionPool current = pool;
+        return current == null ? 0 : current.getSize();
+    }
+
+    /**
+     * @return number of physical connections waiting in the pool
+     */
+    public int getIdleConnections() {
+        CouchbaseConnectionPool current = pool;
+        return current == null ? 0 : current.getIdleCount();
+    }
+
+    /**
+     * @return number of connections that were borrowed from the pool
+     */
+    public long getBorrowCount() {
+        CouchbaseConnectionPool current = pool;
+        return current == null ? 0 : current.getBorrowCount();
+    }
+
+    /**
+     * @return milliseconds spent waiting for a free connection when the pool was exhausted
+     */
+    public long getTotalWaitTime() {
+        CouchbaseConnectionPool current = pool;
+        return current == null ? 0 : TimeUnit.NANOSECONDS.toMillis(current.getTotalWaitNanos());
+    }
+
+    public long getMaxWaitTime() {
+        CouchbaseConnectionPool current = pool;
+        return current == null ? 0 : TimeUnit.NANOSECONDS.toMillis(current.getMaxWaitNanos());
+    }
+
+    /**
+     * @return milliseconds spent in {@link #getConnection()}, including waiting and opening new connections
+     */
+    public long getTotalBorrowTime() {
+        CouchbaseConnectionPool current = pool;
+        return current == null ? 0 : TimeUnit.NANOSECONDS.toMillis(current.getTotalBorrowNanos());
+    }
+
+    public long getMaxBorrowTime() {
+        CouchbaseConnectionPool current = pool;
+        return current == null ? 0 : TimeUnit.NANOSECONDS.toMillis(current.getMaxBorrowNanos());
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    /**
+     * @param seconds maximum wait for a free pooled connection, overrides {@link #setConnectionTimeout} if positive
+     */
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Cannot unwrap to " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -1,32 +1,60 @@
 package com.intellij;
 
 import com.couchbase.client.core.error.CouchbaseException;
+import com.couchbase.client.java.json.JsonArray;
+import com.intellij.DriverPropertyInfoHelper.SamplingMode;
+import com.intellij.meta.ClusterInfo;
 import com.intellij.meta.ColumnInfo;
+import com.intellij.meta.DocumentSchema;
 import com.intellij.meta.TableInfo;
-import com.intellij.types.ColumnTypeHelper;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.sql.ResultSet;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.sql.SQLException;
-import java.sql.Types;
+import java.time.Duration;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static com.couchbase.client.core.util.CbThrowables.findCause;
+import static com.intellij.BlockingUtil.await;
+import static com.intellij.DriverPropertyInfoHelper.META_CACHE_DIR;
+import static com.intellij.DriverPropertyInfoHelper.META_CACHE_TTL;
+import static com.intellij.DriverPropertyInfoHelper.META_CACHE_TTL_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_MODE;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_MODE_DEFAULT;
 import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_SIZE;
 import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_SIZE_DEFAULT;
-import static com.intellij.EscapingUtil.escapeChars;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_STABLE;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_STABLE_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_TIMEOUT;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_TIMEOUT_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.enumValue;
+import static com.intellij.DriverPropertyInfoHelper.getEnumProperty;
+import static com.intellij.DriverPropertyInfoHelper.getIntProperty;
 import static com.intellij.EscapingUtil.wrapInBackquotes;
 
 public class CouchbaseDocumentsSampler {
     private static final String INTRO_QUERY = "SELECT t.* FROM %s t LIMIT %d;";
+    private static final String INFER_QUERY = "INFER %s WITH {\"sample_size\": %d, \"num_sample_values\": 0}";
     private static final Logger LOG = Logger.getLogger(CouchbaseDocumentsSampler.class.getName());
 
     private final CouchbaseConnection connection;
     private final int sampleSize;
+    private final int cacheTtl;
+    private final int stableSize;
+    private final int samplingTimeout;
+    private final SamplingMode mode;
+    private final SchemaStore store;
 
     public CouchbaseDocumentsSampler(@NotNull CouchbaseConnection connection) {
         this.connection = connection;
@@ -35,80 +63,201 @@ public class CouchbaseDocumentsSampler {
             sampleSize = Integer.parseInt(connection.getProperties().getProperty(META_SAMPLING_SIZE));
         } catch (NumberFormatException ignore) { }
         this.sampleSize = sampleSize;
+        this.cacheTtl = getIntProperty(connection.getProperties(), META_CACHE_TTL, META_CACHE_TTL_DEFAULT);
+        this.stableSize = getIntProperty(connection.getProperties(), META_SAMPLING_STABLE,
+                META_SAMPLING_STABLE_DEFAULT);
+        this.samplingTimeout = getIntProperty(connection.getProperties(), META_SAMPLING_TIMEOUT,
+                META_SAMPLING_TIMEOUT_DEFAULT);
+        this.mode = getEnumProperty(connection.getProperties(), META_SAMPLING_MODE, META_SAMPLING_MODE_DEFAULT);
+        this.store = getStore(connection);
     }
 
     public Collection<ColumnInfo> sample(@NotNull TableInfo table) throws SQLException {
-        Map<String, ColumnInfo> columns = new HashMap<>();
-        String sql = String.format(INTRO_QUERY, qualifyTablePath(table), sampleSize);
-        try (CouchbaseStatement statement = connection.createStatement()) {
-            try (ResultSet resultSet = statement.executeQuery(sql)) {
-                doIterations(columns, resultSet);
-            } catch (CouchbaseException ex) {
-                List<CouchbaseError.ErrorEntry> entries = CouchbaseError.create(ex).getErrorEntries();
-                if (!(entries.size() == 1 && entries.get(0).getErrorCode().startsWith("13"))) {
-                    LOG.log(Level.WARNING, "Error while sampling bucket: ", ex);
+        try {
+            return await(sample(table, 0));
+        } catch (Throwable t) {
+            throw CouchbaseError.toSQLException(Exceptions.unwrap(t));
+        }
+    }
+
+    /**
+     * Samples the keyspace without blocking. Once the deadline passes, the sampling query is cancelled and
+     * columns found so far are returned; such partial schemas are not cached.
+     * A schema found in {@code meta.cache.dir} is returned immediately and sampled again in the background,
+     * at most once per {@code meta.cache.ttl} per cluster and within {@code meta.sampling.timeout}.
+     *
+     * @param deadline {@link System#nanoTime()} to stop sampling at, 0 for no deadline
+     */
+    @NotNull
+    public Mono<Collection<ColumnInfo>> sample(@NotNull TableInfo table, long deadline) {
+        return Mono.defer(() -> {
+            SchemaCache cache = connection.getSchemaCache();
+            String sampling = enumValue(mode) + ":" + sampleSize + ":" + stableSize;
+            Collection<ColumnInfo> cached = cache.get(table.getSchema(), table.getName(), sampling, cacheTtl);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long generation = cache.getGeneration();
+            List<ColumnInfo> stored = store != null ? store.get(table.getSchema(), table.getName(), sampling) : null;
+            if (stored != null) {
+                if (cacheTtl > 0) {
+                    cache.put(table.getSchema(), table.getName(), sampling, stored, generation);
+                }
+                long window = cacheTtl > 0 ? cacheTtl : META_CACHE_TTL_DEFAULT;
+                if (cache.tryStartRefresh(table.getSchema(), table.getName(), sampling, window)) {
+                    connection.getSchemaRefresher().submit(refresh(table, sampling));
                 }
+                return Mono.just(stored);
             }
-        }
-        return columns.values();
+            return sampleKeyspace(table, sampling, deadline);
+        });
     }
 
-    @SuppressWarnings({"unchecked"})
-    private void doIterations(Map<String, ColumnInfo> columns, ResultSet resultSet) throws SQLException {
-        int iteration = 0;
-        while (iteration < sampleSize && resultSet.next()) {
-            iteration++;
-            Map<String, Object> resultMap = (Map<String, Object>) resultSet.getObject(1);
-            extractColumns(columns, resultMap, null);
+    /**
+     * The timeout starts when the refresh leaves the queue of the connection.
+     */
+    @NotNull
+    private Mono<Collection<ColumnInfo>> refresh(@NotNull TableInfo table, @NotNull String sampling) {
+        return Mono.defer(() -> {
+            long deadline = samplingTimeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(samplingTimeout) : 0;
+            return sampleKeyspace(table, sampling, deadline);
+        }).doOnError(e -> LOG.log(Level.FINE, "Failed to refresh schema of " + qualifyTablePath(table), e));
+    }
+
+    @NotNull
+    private Mono<Collection<ColumnInfo>> sampleKeyspace(@NotNull TableInfo table, @NotNull String sampling,
+                                                        long deadline) {
+        return Mono.defer(() -> {
+            SchemaCache cache = connection.getSchemaCache();
+            long generation = cache.getGeneration();
+            DocumentSchema schema = new DocumentSchema();
+            AtomicBoolean complete = new AtomicBoolean();
+            String path = qualifyTablePath(table);
+            Flux<byte[]> rows;
+            switch (mode) {
+                case INFER:
+                    rows = infer(path, schema, deadline, complete);
+                    break;
+                case HYBRID:
+                    rows = infer(path, schema, deadline, complete).onErrorResume(e -> {
+                        LOG.log(Level.FINE, "INFER failed for " + path + ", fetching documents", e);
+                        return fetch(path, schema, deadline, complete);
+                    });
+                    break;
+                default:
+                    rows = fetch(path, schema, deadline, complete);
+            }
+            return rows.then(Mono.fromSupplier(() -> {
+                        List<ColumnInfo> columns = schema.getColumns();
+                        if (!complete.get()) {
+                            LOG.log(Level.WARNING, "Sampling of " + path + " ran out of time after " +
+                                    schema.getDocumentCount() + " documents, columns may be missing");
+                        } else {
+                            if (cacheTtl > 0) {
+                                cache.put(table.getSchema(), table.getName(), sampling, columns, generation);
+                            }
+                            if (store != null) {
+                                cache.store(store, table.getSchema(), table.getName(), sampling, columns, generation);
+                            }
+                        }
+                        return columns;
+                    }))
+                    .onErrorResume(e -> {
+                        Optional<CouchbaseException> ex = findCause(e, CouchbaseException.class);
+                        if (ex.isEmpty()) {
+                            return Mono.error(e);
+                        }
+                        List<CouchbaseError.ErrorEntry> entries = CouchbaseError.create(ex.get()).getErrorEntries();
+                        if (!(entries.size() == 1 && entries.get(0).getErrorCode().startsWith("13"))) {
+                            LOG.log(Level.WARNING, "Error while sampling bucket: ", e);
+                        }
+                        return Mono.just(schema.getColumns());
+                    });
+        });
+    }
+
+    /**
+     * Obtains the cluster UUID on the first use of the directory by connections to the cluster.
+     */
+    @Nullable
+    private static SchemaStore getStore(@NotNull CouchbaseConnection connection) {
+        String directory = connection.getProperties().getProperty(META_CACHE_DIR);
+        if (directory == null || directory.isEmpty()) {
+            return null;
+        }
+        try {
+            return connection.getSchemaCache().getStore(Paths.get(directory),
+                    () -> new ClusterInfo(connection.getCluster()).getClusterInfo().getString("uuid"));
+        } catch (InvalidPathException e) {
+            LOG.log(Level.WARNING, "Invalid " + META_CACHE_DIR + ": " + directory, e);
+            return null;
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void extractColumns(Map<String, ColumnInfo> columns, Map<String, Object> row, String parentName) {
-        row.forEach((key, value) -> {
-            String name = fullyQualifyName(parentName, key);
-            columns.merge(name, createColumn(name, value), (oldValue, newValue) -> {
-                if (oldValue.getType() == Types.NULL) {
-                    return newValue;
+    @NotNull
+    private Flux<byte[]> fetch(@NotNull String path, @NotNull DocumentSchema schema, long deadline,
+                               @NotNull AtomicBoolean complete) {
+        Flux<byte[]> rows = query(String.format(INTRO_QUERY, path, sampleSize), deadline, complete)
+                .doOnNext(schema::add);
+        if (stableSize > 0) {
+            rows = rows.takeUntil(row -> {
+                boolean isStable = schema.getStableCount() >= stableSize;
+                if (isStable) {
+                    complete.set(true);
                 }
-                return oldValue;
+                return isStable;
             });
-            if (value instanceof Map<?, ?>) {
-                extractColumns(columns, (Map<String, Object>) value, name);
+        }
+        return rows;
+    }
+
+    /**
+     * Lets the query service sample the keyspace, only the inferred schema is transferred.
+     */
+    @NotNull
+    private Flux<byte[]> infer(@NotNull String path, @NotNull DocumentSchema schema, long deadline,
+                               @NotNull AtomicBoolean complete) {
+        return query(String.format(INFER_QUERY, path, sampleSize), deadline, complete)
+                .doOnNext(row -> schema.addInferred(JsonArray.fromJson(row)));
+    }
+
+    /**
+     * Rows are cut at the deadline before they reach the schema, so that the cut is serialized with
+     * the rows and the schema is not read while a row is being added.
+     *
+     * @param complete set once all rows of the query are received
+     */
+    @NotNull
+    private Flux<byte[]> query(@NotNull String sql, long deadline, @NotNull AtomicBoolean complete) {
+        return Flux.defer(() -> {
+            Flux<byte[]> rows = Flux.using(connection::createStatement, statement -> executeQuery(statement, sql),
+                            CouchbaseDocumentsSampler::close)
+                    .doOnComplete(() -> complete.set(true));
+            if (deadline == 0) {
+                return rows;
             }
+            long remaining = deadline - System.nanoTime();
+            return remaining > 0 ? rows.take(Duration.ofNanos(remaining)) : Flux.empty();
         });
     }
 
-    private static String qualifyTablePath(TableInfo table) {
-        return table.getSchema() + ":" + wrapInBackquotes(table.getName());
+    private static Flux<byte[]> executeQuery(@NotNull CouchbaseStatement statement, @NotNull String sql) {
+        try {
+            return statement.executeQueryRaw(sql);
+        } catch (SQLException e) {
+            return Flux.error(e);
+        }
     }
 
-    private static String fullyQualifyName(String parentName, String name) {
-        String qualifier = parentName != null ? (parentName + ".") : "";
-        return qualifier + escapeChars(name, '\\', '.');
+    private static void close(@NotNull CouchbaseStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOG.log(Level.FINE, "Failed to close sampling statement", e);
+        }
     }
 
-    private static ColumnInfo createColumn(String name, Object object) {
-        String typeName = "string";
-        if (object == null) {
-            typeName = "null";
-        } else if (object instanceof Map<?, ?>) {
-            typeName = "object";
-        } else if (object instanceof List<?>) {
-            typeName = "array";
-        } else if (object instanceof Boolean) {
-            typeName = "boolean";
-        } else if (object instanceof Float) {
-            typeName = "float";
-        } else if (object instanceof Double) {
-            typeName = "double";
-        } else if (object instanceof Long) {
-            typeName = "long";
-        } else if (object instanceof Integer) {
-            typeName = "integer";
-        } else if (object instanceof Number) {
-            typeName = "numeric";
-        }
-        return new ColumnInfo(name, ColumnTypeHelper.getJavaType(typeName), typeName);
+    private static String qualifyTablePath(TableInfo table) {
+        return table.getSchema() + ":" + wrapInBackquotes(table.getName());
     }
 }
@@ -1,17 +1,26 @@
 package com.intellij;
 
 import com.couchbase.client.core.error.CouchbaseException;
+import com.couchbase.client.core.error.TimeoutException;
 import com.couchbase.client.core.error.context.ErrorContext;
 import org.jetbrains.annotations.NotNull;
 
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static com.couchbase.client.core.util.CbThrowables.findCause;
 
 public class CouchbaseError {
     private static final String UNKNOWN = "UNKNOWN";
+    private static final String TIMEOUT = "TIMEOUT";
+    private static final String CANCELLED = "CANCELLED";
+    private static final String QUERY_CANCELED_STATE = "57014";
 
     private final List<ErrorEntry> errorEntries;
 
@@ -45,6 +54,48 @@ public class CouchbaseError {
         return new CouchbaseError(entries);
     }
 
+    /**
+     * @return {@link SQLTimeoutException} for a timed out request, exception with SQL state 57014 for
+     * a cancelled statement and a plain {@link SQLException} otherwise
+     */
+    @NotNull
+    public static SQLException toSQLException(@NotNull Throwable t) {
+        if (t instanceof SQLException) {
+            return (SQLException) t;
+        }
+        if (findCause(t, TimeoutException.class).isPresent() ||
+                findCause(t, java.util.concurrent.TimeoutException.class).isPresent()) {
+            return new SQLTimeoutException(t.getMessage(), t);
+        }
+        if (findCause(t, CancellationException.class).isPresent()) {
+            return new SQLException("Statement was cancelled", QUERY_CANCELED_STATE, t);
+        }
+        return new SQLException(t);
+    }
+
+    /**
+     * @return query service error codes of the failure, {@code TIMEOUT}, {@code CANCELLED} or {@code UNKNOWN}
+     */
+    @NotNull
+    public static List<String> getErrorCodes(@NotNull Throwable t) {
+        if (t instanceof SQLTimeoutException || findCause(t, TimeoutException.class).isPresent()) {
+            return Collections.singletonList(TIMEOUT);
+        }
+        if (t instanceof SQLException && QUERY_CANCELED_STATE.equals(((SQLException) t).getSQLState()) ||
+                findCause(t, CancellationException.class).isPresent()) {
+            return Collections.singletonList(CANCELLED);
+        }
+        CouchbaseException exception = findCause(t, CouchbaseException.class).orElse(null);
+        if (exception == null) {
+            return Collections.singletonList(UNKNOWN);
+        }
+        List<String> codes = new ArrayList<>();
+        for (ErrorEntry entry : create(exception).getErrorEntries()) {
+            codes.add(entry.getErrorCode());
+        }
+        return codes.isEmpty() ? Collections.singletonList(UNKNOWN) : codes;
+    }
+
     private static CouchbaseError unknown(@NotNull CouchbaseException exception) {
         return new CouchbaseError(Collections.singletonList(new ErrorEntry(UNKNOWN, exception.toString())));
     }
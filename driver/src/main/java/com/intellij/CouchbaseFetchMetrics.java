@@ -0,0 +1,37 @@
+package com.intellij;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+
+/**
+ * Row buffering of a result set so far, available with {@code resultSet.unwrap(CouchbaseFetchMetrics.class)}.
+ * Frequent stalls suggest raising the high watermarks or the fetch size, a peak close to the byte budget
+ * suggests lowering them.
+ */
+public interface CouchbaseFetchMetrics {
+    /**
+     * @return number of times the application found no buffered row and waited for the server
+     */
+    long getStallCount();
+
+    /**
+     * @return total time the application waited for rows
+     */
+    @NotNull
+    Duration getStallTime();
+
+    long getMaxBufferedRows();
+
+    long getMaxBufferedBytes();
+
+    /**
+     * @return number of rows of the next request
+     */
+    int getRequestSize();
+
+    /**
+     * @return average size of received rows in bytes, 0 if unknown
+     */
+    long getAverageRowBytes();
+}
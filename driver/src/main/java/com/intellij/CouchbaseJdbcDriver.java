@@ -35,14 +35,18 @@ public class CouchbaseJdbcDriver implements Driver {
      */
     public Connection connect(@NotNull String url, @Nullable Properties info) throws SQLException {
         if (acceptsURL(url)) {
+            ClusterConnection cluster = null;
             try {
                 CouchbaseClientURI clientURI = new CouchbaseClientURI(url, info);
-                ClusterConnection cluster = clientURI.createClusterConnection();
+                cluster = ClusterConnectionRegistry.getInstance().acquire(clientURI);
                 if (info == null) {
                     info = new Properties();
                 }
                 return new CouchbaseConnection(cluster, this, clientURI, info);
             } catch (Exception e) {
+                if (cluster != null) {
+                    ClusterConnectionRegistry.getInstance().release(cluster);
+                }
                 throw new SQLException(e.getMessage(), e);
             }
         }
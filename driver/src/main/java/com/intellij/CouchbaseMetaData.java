@@ -3,9 +3,13 @@ package com.intellij;
 import com.intellij.meta.ClusterInfo;
 import com.intellij.meta.ColumnInfo;
 import com.intellij.meta.TableInfo;
+import com.intellij.metrics.DriverMetrics;
+import com.intellij.metrics.StatementKind;
 import com.intellij.resultset.CouchbaseListResultSet;
 import com.intellij.resultset.CouchbaseResultSetMetaData;
 import org.jetbrains.annotations.NotNull;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -19,7 +23,15 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static com.intellij.BlockingUtil.await;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_PARALLELISM;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_PARALLELISM_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_TIMEOUT;
+import static com.intellij.DriverPropertyInfoHelper.META_SAMPLING_TIMEOUT_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.getIntProperty;
 import static com.intellij.EscapingUtil.stripBackquotes;
 import static com.intellij.resultset.CouchbaseResultSetMetaData.createColumn;
 
@@ -31,6 +43,7 @@ import static com.intellij.resultset.CouchbaseResultSetMetaData.createColumn;
 public class CouchbaseMetaData implements DatabaseMetaData {
 
     public static final String SYSTEM_SCHEMA = "system";
+    public static final String DEFAULT_SCHEMA = "default";
     private static final String DB_NAME = "Couchbase";
 
     private final CouchbaseConnection connection;
@@ -120,17 +133,35 @@ public class CouchbaseMetaData implements DatabaseMetaData {
                                 String tableNamePattern, String columnNamePattern) throws SQLException {
         CouchbaseDocumentsSampler sampler = new CouchbaseDocumentsSampler(connection);
         try (ResultSet tables = getTables(catalog, schemaPattern, tableNamePattern, null)) {
-            CouchbaseListResultSet listResultSet = new CouchbaseListResultSet(getColumnsInfoRows(sampler, tables));
+            long start = System.nanoTime();
+            CouchbaseListResultSet listResultSet = new CouchbaseListResultSet(
+                    getColumnsInfoRows(sampler, tables, connection.getProperties()));
+            DriverMetrics.getInstance().recordExecution(StatementKind.METADATA, start);
             listResultSet.setMetadata(createColumnsMeta());
             return listResultSet;
         }
     }
 
-    private static List<Map<String, Object>> getColumnsInfoRows(CouchbaseDocumentsSampler sampler,
-                                                                ResultSet tablesRs) throws SQLException {
+    /**
+     * Samples up to {@code meta.sampling.parallelism} keyspaces at a time within {@code meta.sampling.timeout},
+     * rows follow the order of tables.
+     */
+    private static List<Map<String, Object>> getColumnsInfoRows(CouchbaseDocumentsSampler sampler, ResultSet tablesRs,
+                                                                Properties properties) throws SQLException {
+        List<TableInfo> tables = getTablesList(tablesRs);
+        int parallelism = Math.max(1, getIntProperty(properties, META_SAMPLING_PARALLELISM,
+                META_SAMPLING_PARALLELISM_DEFAULT));
+        int timeout = getIntProperty(properties, META_SAMPLING_TIMEOUT, META_SAMPLING_TIMEOUT_DEFAULT);
+        long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
         List<Map<String, Object>> rows = new ArrayList<>();
-        for (TableInfo table : getTablesList(tablesRs)) {
-            populateColumnsResultSet(rows, sampler.sample(table), table);
+        try {
+            await(Flux.fromIterable(tables)
+                    .flatMapSequential(table -> sampler.sample(table, deadline)
+                            .map(columns -> Map.entry(table, columns)), parallelism, 1)
+                    .doOnNext(entry -> populateColumnsResultSet(rows, entry.getValue(), entry.getKey()))
+                    .then());
+        } catch (Throwable t) {
+            throw CouchbaseError.toSQLException(Exceptions.unwrap(t));
         }
         return rows;
     }
@@ -251,9 +282,11 @@ public class CouchbaseMetaData implements DatabaseMetaData {
         }
         sql += " ORDER BY name";
 
+        long start = System.nanoTime();
         try (CouchbaseStatement statement = connection.createStatement()) {
             try (ResultSet resultSet = statement.executeQuery(sql)) {
                 CouchbaseListResultSet listResultSet = new CouchbaseListResultSet(getIndexInfoRows(resultSet));
+                DriverMetrics.getInstance().recordExecution(StatementKind.METADATA, start);
                 listResultSet.setMetadata(createIndexMeta());
                 return listResultSet;
             }
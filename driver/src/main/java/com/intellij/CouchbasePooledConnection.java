@@ -0,0 +1,192 @@
+package com.intellij;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.PooledConnection;
+import javax.sql.StatementEventListener;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Physical connection handed to a pool. Every {@link #getConnection()} call returns a logical handle;
+ * closing the handle returns the physical connection to the pool instead of closing it.
+ */
+public class CouchbasePooledConnection implements PooledConnection {
+    private final CouchbaseConnection connection;
+    private final List<ConnectionEventListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Handle currentHandle;
+
+    CouchbasePooledConnection(@NotNull CouchbaseConnection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (connection.isClosed()) {
+            throw new SQLException("Pooled connection was previously closed.");
+        }
+        Handle handle = currentHandle;
+        if (handle != null) {
+            handle.invalidate();
+        }
+        handle = new Handle();
+        currentHandle = handle;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handle);
+    }
+
+    CouchbaseConnection getPhysicalConnection() {
+        return connection;
+    }
+
+    @Override
+    public void close() {
+        Handle handle = currentHandle;
+        if (handle != null) {
+            handle.invalidate();
+        }
+        currentHandle = null;
+        connection.close();
+    }
+
+    @Override
+    public void addConnectionEventListener(ConnectionEventListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeConnectionEventListener(ConnectionEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void addStatementEventListener(StatementEventListener listener) {
+        // statements are not pooled
+    }
+
+    @Override
+    public void removeStatementEventListener(StatementEventListener listener) {
+        // statements are not pooled
+    }
+
+    /**
+     * Closes statements of the returned handle and restores the connection state before the connection goes idle.
+     * If that fails, the connection is reported as broken instead of being returned.
+     */
+    private void recycle(@NotNull List<Statement> statements) {
+        try {
+            for (Statement statement : statements) {
+                statement.close();
+            }
+            connection.resetState();
+        } catch (SQLException e) {
+            fireConnectionError(e);
+            return;
+        }
+        fireConnectionClosed();
+    }
+
+    private void fireConnectionClosed() {
+        ConnectionEvent event = new ConnectionEvent(this);
+        for (ConnectionEventListener listener : listeners) {
+            listener.connectionClosed(event);
+        }
+    }
+
+    private void fireConnectionError(SQLException e) {
+        ConnectionEvent event = new ConnectionEvent(this, e);
+        for (ConnectionEventListener listener : listeners) {
+            listener.connectionErrorOccurred(event);
+        }
+    }
+
+    private class Handle implements InvocationHandler {
+        private final List<Statement> statements = new ArrayList<>();
+        private volatile boolean isClosed = false;
+
+        void invalidate() {
+            isClosed = true;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!isClosed) {
+                        isClosed = true;
+                        currentHandle = null;
+                        List<Statement> opened;
+                        synchronized (statements) {
+                            opened = new ArrayList<>(statements);
+                            statements.clear();
+                        }
+                        recycle(opened);
+                    }
+                    return null;
+                case "isClosed":
+                    return isClosed || connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + connection;
+            }
+            if (isClosed) {
+                throw new SQLException("Connection was previously closed.");
+            }
+            switch (method.getName()) {
+                case "unwrap":
+                    return unwrap(proxy, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return isWrapperFor(proxy, (Class<?>) args[0]);
+            }
+            try {
+                Object result = method.invoke(connection, args);
+                if (result instanceof Statement) {
+                    synchronized (statements) {
+                        statements.add((Statement) result);
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && connection.isClosed()) {
+                    fireConnectionError((SQLException) cause);
+                }
+                throw cause;
+            }
+        }
+
+        /**
+         * The physical connection is not exposed: closing it or using it after the handle is returned
+         * would bypass the pool.
+         */
+        private Object unwrap(Object proxy, Class<?> iface) throws SQLException {
+            if (iface.isInstance(proxy)) {
+                return proxy;
+            }
+            if (iface.isInstance(connection)) {
+                throw new SQLException("Pooled connection is not a wrapper for " + iface.getName());
+            }
+            return connection.unwrap(iface);
+        }
+
+        private boolean isWrapperFor(Object proxy, Class<?> iface) throws SQLException {
+            if (iface.isInstance(proxy)) {
+                return true;
+            }
+            return !iface.isInstance(connection) && connection.isWrapperFor(iface);
+        }
+    }
+}
@@ -2,13 +2,21 @@ package com.intellij;
 
 import com.couchbase.client.java.json.JsonArray;
 import com.couchbase.client.java.query.QueryOptions;
+import com.couchbase.client.java.query.ReactiveQueryResult;
+import com.intellij.executor.ExecutionResult;
+import com.intellij.executor.KeyValueExecutor;
+import com.intellij.metrics.StatementKind;
+import com.intellij.resultset.Row;
 import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
 
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.Array;
+import java.sql.BatchUpdateException;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Date;
@@ -24,21 +32,38 @@ import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.intellij.DateUtil.Direction;
 import static com.intellij.DateUtil.considerTimeZone;
+import static com.intellij.DriverPropertyInfoHelper.BATCH_REWRITE_SIZE;
+import static com.intellij.DriverPropertyInfoHelper.BATCH_REWRITE_SIZE_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.REWRITE_BATCHED_STATEMENTS;
+import static com.intellij.DriverPropertyInfoHelper.getIntProperty;
+import static com.intellij.DriverPropertyInfoHelper.isTrue;
+import static com.intellij.EscapingUtil.wrapInBackquotes;
 import static java.lang.Math.max;
 
-public class CouchbasePreparedStatement extends CouchbaseBaseStatement implements PreparedStatement {
+public class CouchbasePreparedStatement extends CouchbaseBaseStatement
+        implements PreparedStatement, CouchbaseAsyncPreparedStatement {
     private final String sql;
+    private final String normalizedSql;
     private final Object[] params;
+    private final PreparedStatementCache preparedCache;
+    private final List<Object[]> batch = new ArrayList<>();
+    private final KeyValueExecutor keyValueExecutor;
 
     CouchbasePreparedStatement(@NotNull CouchbaseConnection connection, @NotNull String sql) {
         super(connection);
         this.sql = sql;
+        this.normalizedSql = SqlUtil.normalize(sql);
         this.params = new Object[countPossibleParametersNumber(sql)];
+        this.preparedCache = connection.getPreparedStatementCache();
+        this.keyValueExecutor = KeyValueExecutor.isEnabled(properties) ? KeyValueExecutor.create(sql) : null;
     }
 
     @Override
@@ -51,6 +76,25 @@ public class CouchbasePreparedStatement extends CouchbaseBaseStatement implement
         return result;
     }
 
+    @Override
+    public @NotNull CompletableFuture<ResultSet> executeQueryAsync() throws SQLException {
+        checkClosed();
+        startExecution(sql, params);
+        String statement = applyMaxRows(sql);
+        String normalizedStatement = statement.equals(sql) ? normalizedSql : SqlUtil.normalize(statement);
+        return executeQueryAsyncInner(executeReactive(statement, normalizedStatement, bindParameters()));
+    }
+
+    @Override
+    public @NotNull Publisher<Row> executeQueryReactive() throws SQLException {
+        checkClosed();
+        startExecution(sql, params);
+        String statement = applyMaxRows(sql);
+        String normalizedStatement = statement.equals(sql) ? normalizedSql : SqlUtil.normalize(statement);
+        QueryOptions options = bindParameters();
+        return executeQueryReactiveInner(Mono.defer(() -> executeReactive(statement, normalizedStatement, options)));
+    }
+
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
         throw new SQLException("Method should not be called on prepared statement");
@@ -84,7 +128,64 @@ public class CouchbasePreparedStatement extends CouchbaseBaseStatement implement
 
     @Override
     public void clearBatch() throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        checkClosed();
+        batch.clear();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        checkClosed();
+        startExecution(sql, null);
+        List<Object[]> batchParams = new ArrayList<>(batch);
+        batch.clear();
+        InsertValuesRewriter rewriter = batchParams.size() > 1 && isTrue(properties.getProperty(REWRITE_BATCHED_STATEMENTS))
+                ? InsertValuesRewriter.create(sql, params.length) : null;
+        if (rewriter == null) {
+            return executeBatchInner(ContainerUtil.map(batchParams,
+                    batchParam -> Mono.defer(() -> executeReactive(sql, normalizedSql, bindParameters(batchParam)))));
+        }
+        return executeRewrittenBatch(rewriter, batchParams);
+    }
+
+    /**
+     * Sends the batch as multi-VALUES statements of at most {@code batch.rewrite.size} rows each.
+     * Every row of a chunk gets update count 1 if the chunk mutated all of its rows,
+     * otherwise the counts of the chunk are unknown.
+     */
+    private int[] executeRewrittenBatch(@NotNull InsertValuesRewriter rewriter,
+                                        @NotNull List<Object[]> batchParams) throws SQLException {
+        int chunkSize = Math.max(1, getIntProperty(properties, BATCH_REWRITE_SIZE, BATCH_REWRITE_SIZE_DEFAULT));
+        List<Integer> chunkRows = new ArrayList<>();
+        List<Mono<ReactiveQueryResult>> chunks = new ArrayList<>();
+        for (int start = 0; start < batchParams.size(); start += chunkSize) {
+            int rows = Math.min(chunkSize, batchParams.size() - start);
+            Object[] values = new Object[rows * params.length];
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(batchParams.get(start + row), 0, values, row * params.length, params.length);
+            }
+            String chunkSql = rewriter.rewrite(rows);
+            chunkRows.add(rows);
+            chunks.add(Mono.defer(() -> executeReactive(chunkSql, SqlUtil.normalize(chunkSql), bindParameters(values))));
+        }
+        try {
+            return expandUpdateCounts(executeBatchInner(chunks), chunkRows, batchParams.size());
+        } catch (BatchUpdateException e) {
+            throw new BatchUpdateException(e.getMessage(), expandUpdateCounts(e.getUpdateCounts(), chunkRows,
+                    batchParams.size()), e.getCause());
+        }
+    }
+
+    private static int[] expandUpdateCounts(int[] chunkCounts, List<Integer> chunkRows, int size) {
+        int[] updateCounts = new int[size];
+        int offset = 0;
+        for (int chunk = 0; chunk < chunkCounts.length; chunk++) {
+            int rows = chunkRows.get(chunk);
+            int count = chunkCounts[chunk];
+            int rowCount = count == EXECUTE_FAILED ? EXECUTE_FAILED : count == rows ? 1 : SUCCESS_NO_INFO;
+            Arrays.fill(updateCounts, offset, offset + rows, rowCount);
+            offset += rows;
+        }
+        return updateCounts;
     }
 
     @Override
@@ -97,26 +198,80 @@ public class CouchbasePreparedStatement extends CouchbaseBaseStatement implement
     @Override
     public boolean execute() throws SQLException {
         checkClosed();
+        startExecution(sql, params);
         try {
-            return executeInner(sql, cluster.reactive().query(sql, bindParameters()));
+            if (keyValueExecutor != null) {
+                ExecutionResult executionResult = keyValueExecutor.execute(connection, this, params);
+                if (executionResult.isSuccess()) {
+                    clearParams();
+                    ResultSet resultSet = executionResult.getResultSet();
+                    setNewResultSet(resultSet, executionResult.getUpdateCount());
+                    if (resultSet == null) {
+                        // lookups are recorded once their rows complete
+                        recordExecution(StatementKind.KEY_VALUE);
+                    }
+                    return resultSet != null;
+                }
+            }
+            // recorded once the rows complete
+            String statement = applyMaxRows(sql);
+            String normalizedStatement = statement.equals(sql) ? normalizedSql : SqlUtil.normalize(statement);
+            return executeInner(statement, executeReactive(statement, normalizedStatement, bindParameters()));
+        } catch (SQLException e) {
+            recordError(e);
+            throw e;
         } catch (Throwable t) {
+            recordError(t);
             throw new SQLException(t.getMessage(), t);
         }
     }
 
-    private QueryOptions bindParameters() {
+    private Mono<ReactiveQueryResult> executeReactive(@NotNull String statement, @NotNull String normalizedStatement,
+                                                      @NotNull QueryOptions options) {
+        if (!preparedCache.isEnabled() || !PreparedStatementCache.isPreparable(statement)) {
+            return cluster.reactive().query(statement, options.adhoc(false));
+        }
+        return executePrepared(statement, normalizedStatement, options, true);
+    }
+
+    private Mono<ReactiveQueryResult> executePrepared(@NotNull String statement, @NotNull String normalizedStatement,
+                                                      @NotNull QueryOptions options, boolean canRetry) {
+        return Mono.defer(() -> {
+            String cached = preparedCache.get(normalizedStatement);
+            Mono<String> plan = cached != null ? Mono.just(cached) : prepare(statement, normalizedStatement);
+            return plan.flatMap(name -> cluster.reactive().query("EXECUTE " + wrapInBackquotes(name), options)
+                    .onErrorResume(e -> canRetry && PreparedStatementCache.isPlanNotFound(e), e -> {
+                        // the plan was evicted on the server, e.g. after a restart
+                        preparedCache.invalidate(normalizedStatement, name);
+                        return executePrepared(statement, normalizedStatement, options, false);
+                    }));
+        });
+    }
+
+    private Mono<String> prepare(@NotNull String statement, @NotNull String normalizedStatement) {
+        String name = preparedCache.newPlanName();
+        return cluster.reactive()
+                .query("PREPARE " + wrapInBackquotes(name) + " FROM " + statement, makeQueryOptions().metrics(false))
+                .flatMap(result -> result.rowsAsObject().then())
+                .then(Mono.fromCallable(() -> preparedCache.put(normalizedStatement, name)));
+    }
+
+    QueryOptions bindParameters() {
         try {
-            QueryOptions options = makeQueryOptions()
-                    .adhoc(false);
-            if (params != null && params.length > 0) {
-                options = options.parameters(JsonArray.from(params));
-            }
-            return options;
+            return bindParameters(params);
         } finally {
             clearParams();
         }
     }
 
+    private QueryOptions bindParameters(Object[] values) {
+        QueryOptions options = makeQueryOptions();
+        if (values != null && values.length > 0) {
+            options = options.parameters(JsonArray.from(values));
+        }
+        return options;
+    }
+
     private void clearParams() {
         if (params == null) return;
         Arrays.fill(params, null);
@@ -272,7 +427,9 @@ public class CouchbasePreparedStatement extends CouchbaseBaseStatement implement
 
     @Override
     public void addBatch() throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        checkClosed();
+        batch.add(params.clone());
+        clearParams();
     }
 
     @Override
@@ -0,0 +1,55 @@
+package com.intellij;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Metrics reported by the query service for a statement, available with
+ * {@code resultSet.unwrap(CouchbaseQueryMetrics.class)} or, for the last statement executed,
+ * {@code statement.unwrap(CouchbaseQueryMetrics.class)}.
+ * Server-side metrics are zero until all rows are received, see {@link #isComplete()}.
+ */
+public interface CouchbaseQueryMetrics {
+    /**
+     * @return true once the query service reported metrics of the statement
+     */
+    boolean isComplete();
+
+    @Nullable
+    String getClientContextId();
+
+    /**
+     * @return time from the request reaching the query service to the last row sent
+     */
+    @NotNull
+    Duration getElapsedTime();
+
+    /**
+     * @return time the query service spent executing the statement
+     */
+    @NotNull
+    Duration getExecutionTime();
+
+    long getResultCount();
+
+    /**
+     * @return size of the result in bytes as reported by the query service
+     */
+    long getResultSize();
+
+    long getSortCount();
+
+    long getMutationCount();
+
+    long getErrorCount();
+
+    long getWarningCount();
+
+    /**
+     * @return time the driver spent decoding rows received so far
+     */
+    @NotNull
+    Duration getDecodeTime();
+}
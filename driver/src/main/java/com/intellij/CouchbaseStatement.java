@@ -1,17 +1,28 @@
 package com.intellij;
 
+import com.couchbase.client.java.query.QueryOptions;
 import com.intellij.executor.ExecutionResult;
+import com.intellij.executor.KeyValueExecutor;
+import com.intellij.metrics.DriverMetrics;
+import com.intellij.metrics.StatementKind;
 import com.intellij.resultset.CouchbaseListResultSet;
+import com.intellij.resultset.Row;
 import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.CompletableFuture;
 
 import static com.intellij.executor.CouchbaseCustomStatementExecutor.tryExecuteDdlStatement;
 import static java.lang.Math.max;
 
-public class CouchbaseStatement extends CouchbaseBaseStatement {
+public class CouchbaseStatement extends CouchbaseBaseStatement implements CouchbaseAsyncStatement {
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
     CouchbaseStatement(@NotNull CouchbaseConnection connection) {
         super(connection);
     }
@@ -26,11 +37,44 @@ public class CouchbaseStatement extends CouchbaseBaseStatement {
         return result;
     }
 
+    @Override
+    public @NotNull CompletableFuture<ResultSet> executeQueryAsync(@NotNull String sql) throws SQLException {
+        checkClosed();
+        startExecution(sql, null);
+        String statement = applyMaxRows(sql);
+        return executeQueryAsyncInner(cluster.reactive().query(statement, makeQueryOptions()));
+    }
+
+    @Override
+    public @NotNull Publisher<Row> executeQueryReactive(@NotNull String sql) throws SQLException {
+        checkClosed();
+        startExecution(sql, null);
+        String statement = applyMaxRows(sql);
+        QueryOptions options = makeQueryOptions();
+        return executeQueryReactiveInner(Mono.defer(() -> cluster.reactive().query(statement, options)));
+    }
+
+    /**
+     * Same as {@link #executeQueryReactive} with rows left as JSON bytes.
+     */
+    @NotNull
+    Flux<byte[]> executeQueryRaw(@NotNull String sql) throws SQLException {
+        checkClosed();
+        startExecution(sql, null);
+        String statement = applyMaxRows(sql);
+        QueryOptions options = makeQueryOptions();
+        return executeQueryRawInner(Mono.defer(() -> cluster.reactive().query(statement, options)));
+    }
+
     CouchbaseListResultSet executeMetaQuery(@NotNull String sql) throws SQLException {
         checkClosed();
+        long start = System.nanoTime();
         try {
-            return new CouchbaseListResultSet(cluster.query(sql, makeQueryOptions()));
+            CouchbaseListResultSet resultSet = new CouchbaseListResultSet(cluster.query(sql, makeQueryOptions()));
+            DriverMetrics.getInstance().recordExecution(StatementKind.METADATA, start);
+            return resultSet;
         } catch (Throwable t) {
+            DriverMetrics.getInstance().recordError(t);
             throw new SQLException(t.getMessage(), t);
         }
     }
@@ -45,15 +89,34 @@ public class CouchbaseStatement extends CouchbaseBaseStatement {
     @Override
     public boolean execute(@NotNull String sql) throws SQLException {
         checkClosed();
+        startExecution(sql, null);
         try {
+            StatementKind kind = StatementKind.DDL;
             ExecutionResult executionResult = tryExecuteDdlStatement(connection, sql);
+            if (!executionResult.isSuccess() && KeyValueExecutor.isEnabled(properties)) {
+                KeyValueExecutor keyValueExecutor = KeyValueExecutor.create(sql);
+                if (keyValueExecutor != null) {
+                    kind = StatementKind.KEY_VALUE;
+                    executionResult = keyValueExecutor.execute(connection, this, NO_PARAMETERS);
+                }
+            }
             if (executionResult.isSuccess()) {
                 ResultSet resultSet = executionResult.getResultSet();
-                setNewResultSet(resultSet);
+                setNewResultSet(resultSet, executionResult.getUpdateCount());
+                if (kind != StatementKind.KEY_VALUE || resultSet == null) {
+                    // key-value lookups are recorded once their rows complete
+                    recordExecution(kind);
+                }
                 return resultSet != null;
             }
-            return executeInner(sql, cluster.reactive().query(sql, makeQueryOptions()));
+            // recorded once the rows complete
+            String statement = applyMaxRows(sql);
+            return executeInner(statement, cluster.reactive().query(statement, makeQueryOptions()));
+        } catch (SQLException e) {
+            recordError(e);
+            throw e;
         } catch (Throwable t) {
+            recordError(t);
             throw new SQLException(t);
         }
     }
@@ -26,9 +26,67 @@ public class DriverPropertyInfoHelper {
 
     public static final String META_SAMPLING_SIZE = "meta.sampling.size";
     public static final int META_SAMPLING_SIZE_DEFAULT = 1000;
+    public static final String META_SAMPLING_MODE = "meta.sampling.mode";
+    public static final SamplingMode META_SAMPLING_MODE_DEFAULT = SamplingMode.CLIENT;
+    public static final String META_SAMPLING_STABLE = "meta.sampling.stable";
+    public static final int META_SAMPLING_STABLE_DEFAULT = 0;
+    public static final String META_SAMPLING_PARALLELISM = "meta.sampling.parallelism";
+    public static final int META_SAMPLING_PARALLELISM_DEFAULT = 4;
+    public static final String META_SAMPLING_TIMEOUT = "meta.sampling.timeout";
+    public static final int META_SAMPLING_TIMEOUT_DEFAULT = 0;
+    public static final String META_CACHE_TTL = "meta.cache.ttl";
+    public static final int META_CACHE_TTL_DEFAULT = 300_000;
+    public static final String META_CACHE_DIR = "meta.cache.dir";
 
     public static final String DEFAULT_BUCKET = "defaultBucket";
 
+    public static final String KV_FAST_PATH = "kv.fastpath";
+    public static final String KV_FAST_PATH_DEFAULT = "false";
+    public static final String KV_MULTIGET_ORDER = "kv.multiget.order";
+    public static final MultiGetOrder KV_MULTIGET_ORDER_DEFAULT = MultiGetOrder.INPUT;
+    public static final String RESULTSET_COLUMNS = "resultset.columns";
+    public static final ResultSetColumns RESULTSET_COLUMNS_DEFAULT = ResultSetColumns.SINGLE;
+    public static final String RESULTSET_DECODING = "resultset.decoding";
+    public static final RowDecoding RESULTSET_DECODING_DEFAULT = RowDecoding.OBJECT;
+    public static final String FETCH_BUFFER_LOW_ROWS = "fetch.buffer.low.rows";
+    public static final int FETCH_BUFFER_LOW_ROWS_DEFAULT = 16;
+    public static final String FETCH_BUFFER_HIGH_ROWS = "fetch.buffer.high.rows";
+    public static final int FETCH_BUFFER_HIGH_ROWS_DEFAULT = 2048;
+    public static final String FETCH_BUFFER_LOW_BYTES = "fetch.buffer.low.bytes";
+    public static final int FETCH_BUFFER_LOW_BYTES_DEFAULT = 1 << 20;
+    public static final String FETCH_BUFFER_HIGH_BYTES = "fetch.buffer.high.bytes";
+    public static final int FETCH_BUFFER_HIGH_BYTES_DEFAULT = 16 << 20;
+    public static final String FETCH_SIZE_BYTES = "fetch.size.bytes";
+    public static final int FETCH_SIZE_BYTES_DEFAULT = 32 << 20;
+    public static final String QUERY_LIMIT_REWRITE = "query.limit.rewrite";
+    public static final String QUERY_LIMIT_REWRITE_DEFAULT = "false";
+    public static final String KV_MULTIGET_PARALLELISM = "kv.multiget.parallelism";
+    public static final int KV_MULTIGET_PARALLELISM_DEFAULT = 32;
+    public static final String SLOW_QUERY_THRESHOLD = "slowquery.threshold.ms";
+    public static final int SLOW_QUERY_THRESHOLD_DEFAULT = 0;
+    public static final String SLOW_QUERY_LOG_FILE = "slowquery.log.file";
+    public static final String SLOW_QUERY_LOG_FILE_DEFAULT = "%h/couchbase-jdbc-slow-queries.%g.log";
+    public static final String SLOW_QUERY_LOG_PARAMETERS = "slowquery.log.parameters";
+    public static final String SLOW_QUERY_LOG_PARAMETERS_DEFAULT = "false";
+    public static final String SLOW_QUERY_EXPLAIN = "slowquery.explain";
+    public static final String SLOW_QUERY_EXPLAIN_DEFAULT = "false";
+
+    public static final String METRICS_EXPORTER = "metrics.exporter";
+    public static final MetricsExporter METRICS_EXPORTER_DEFAULT = MetricsExporter.NONE;
+
+    public static final String BATCH_PARALLELISM = "batch.parallelism";
+    public static final int BATCH_PARALLELISM_DEFAULT = 8;
+    public static final String REWRITE_BATCHED_STATEMENTS = "rewriteBatchedStatements";
+    public static final String REWRITE_BATCHED_STATEMENTS_DEFAULT = "false";
+    public static final String BATCH_REWRITE_SIZE = "batch.rewrite.size";
+    public static final int BATCH_REWRITE_SIZE_DEFAULT = 100;
+
+    public static final String CLUSTER_IDLE_TIMEOUT = "cluster.idle.timeout";
+    public static final long CLUSTER_IDLE_TIMEOUT_DEFAULT = 10_000;
+
+    public static final String PREPARED_CACHE_SIZE = "query.prepared.cache.size";
+    public static final int PREPARED_CACHE_SIZE_DEFAULT = 0;
+
     public static final String LOGGING_LEVEL = "loggingLevel";
     public static final String LOGGING_LEVEL_DEFAULT = "severe";
     private static final String[] LOGGING_LEVEL_CHOICES = new String[]{"off", "severe", "warning", "info", "fine", "all"};
@@ -50,11 +108,80 @@ public class DriverPropertyInfoHelper {
         addPropInfo(propInfos, META_SAMPLING_SIZE, Integer.toString(META_SAMPLING_SIZE_DEFAULT),
                 "Number of documents that will be fetched per collection in order " +
                         "to return meta information from DatabaseMetaData.getColumns method.", null);
+        addPropInfo(propInfos, META_SAMPLING_MODE, enumValue(META_SAMPLING_MODE_DEFAULT),
+                "Infer collection schemas from documents fetched by the driver, with the INFER statement " +
+                        "of the query service, or with INFER falling back to fetched documents.", enumChoices(SamplingMode.class));
+        addPropInfo(propInfos, META_SAMPLING_STABLE, Integer.toString(META_SAMPLING_STABLE_DEFAULT),
+                "Stop sampling a collection once this many consecutive documents add no column and " +
+                        "widen no column type. 0 samples meta.sampling.size documents.", null);
+        addPropInfo(propInfos, META_SAMPLING_PARALLELISM, Integer.toString(META_SAMPLING_PARALLELISM_DEFAULT),
+                "Maximum number of collections sampled concurrently by DatabaseMetaData.getColumns.", null);
+        addPropInfo(propInfos, META_SAMPLING_TIMEOUT, Integer.toString(META_SAMPLING_TIMEOUT_DEFAULT),
+                "Milliseconds DatabaseMetaData.getColumns may spend sampling; collections not sampled in time " +
+                        "return columns found so far. 0 removes the limit.", null);
+        addPropInfo(propInfos, META_CACHE_TTL, Integer.toString(META_CACHE_TTL_DEFAULT),
+                "Milliseconds a sampled collection schema is reused by DatabaseMetaData.getColumns " +
+                        "of connections to the same cluster. 0 samples on every call.", null);
+        addPropInfo(propInfos, META_CACHE_DIR, "",
+                "Directory keeping sampled collection schemas between sessions, one file per cluster. " +
+                        "Stored schemas are returned at once and sampled again in the background.", null);
+        addPropInfo(propInfos, KV_FAST_PATH, KV_FAST_PATH_DEFAULT,
+                "Serve single-keyspace lookups and mutations by document key with the key-value service " +
+                        "instead of the query service.", BOOL_CHOICES);
+        addPropInfo(propInfos, KV_MULTIGET_PARALLELISM, Integer.toString(KV_MULTIGET_PARALLELISM_DEFAULT),
+                "Maximum number of concurrent key-value lookups of a USE KEYS statement with multiple keys.", null);
+        addPropInfo(propInfos, KV_MULTIGET_ORDER, enumValue(KV_MULTIGET_ORDER_DEFAULT),
+                "Order of rows returned by a key-value lookup with multiple keys: " +
+                        "the order of keys or the order in which documents are fetched.", enumChoices(MultiGetOrder.class));
+        addPropInfo(propInfos, RESULTSET_COLUMNS, enumValue(RESULTSET_COLUMNS_DEFAULT),
+                "Shape of query result sets: a single column holding the whole row " +
+                        "or one column per top-level field of the projection.", enumChoices(ResultSetColumns.class));
+        addPropInfo(propInfos, RESULTSET_DECODING, enumValue(RESULTSET_DECODING_DEFAULT),
+                "Decoding of query result rows: whole rows by the SDK or top-level fields on first access " +
+                        "from raw row bytes.", enumChoices(RowDecoding.class));
+        addPropInfo(propInfos, FETCH_BUFFER_LOW_ROWS, Integer.toString(FETCH_BUFFER_LOW_ROWS_DEFAULT),
+                "More rows are requested from the server when fewer rows than this are buffered or in flight.", null);
+        addPropInfo(propInfos, FETCH_BUFFER_HIGH_ROWS, Integer.toString(FETCH_BUFFER_HIGH_ROWS_DEFAULT),
+                "Maximum number of rows buffered or in flight per result set.", null);
+        addPropInfo(propInfos, FETCH_BUFFER_LOW_BYTES, Integer.toString(FETCH_BUFFER_LOW_BYTES_DEFAULT),
+                "More rows are requested from the server only when buffered rows take less than this many bytes.", null);
+        addPropInfo(propInfos, FETCH_BUFFER_HIGH_BYTES, Integer.toString(FETCH_BUFFER_HIGH_BYTES_DEFAULT),
+                "Buffered rows taking this many bytes halve the size of subsequent requests.", null);
+        addPropInfo(propInfos, FETCH_SIZE_BYTES, Integer.toString(FETCH_SIZE_BYTES_DEFAULT),
+                "Maximum size in bytes of rows buffered or requested per result set, estimated from " +
+                        "the average size of received rows. 0 removes the limit.", null);
+        addPropInfo(propInfos, QUERY_LIMIT_REWRITE, QUERY_LIMIT_REWRITE_DEFAULT,
+                "Push Statement.setMaxRows to the server by appending or lowering the LIMIT of SELECT statements.",
+                BOOL_CHOICES);
+        addPropInfo(propInfos, SLOW_QUERY_THRESHOLD, Integer.toString(SLOW_QUERY_THRESHOLD_DEFAULT),
+                "Queries taking at least this many milliseconds on the query service are written to the slow query log. " +
+                        "0 disables the log.", null);
+        addPropInfo(propInfos, SLOW_QUERY_LOG_FILE, SLOW_QUERY_LOG_FILE_DEFAULT,
+                "java.util.logging.FileHandler pattern of the rotating slow query log files.", null);
+        addPropInfo(propInfos, SLOW_QUERY_LOG_PARAMETERS, SLOW_QUERY_LOG_PARAMETERS_DEFAULT,
+                "Write values of statement parameters to the slow query log instead of redacting them.", BOOL_CHOICES);
+        addPropInfo(propInfos, SLOW_QUERY_EXPLAIN, SLOW_QUERY_EXPLAIN_DEFAULT,
+                "Capture the plan of slow queries with EXPLAIN.", BOOL_CHOICES);
+        addPropInfo(propInfos, METRICS_EXPORTER, enumValue(METRICS_EXPORTER_DEFAULT),
+                "Export driver metrics and SDK request latencies as JMX MBeans.", enumChoices(MetricsExporter.class));
+        addPropInfo(propInfos, BATCH_PARALLELISM, Integer.toString(BATCH_PARALLELISM_DEFAULT),
+                "Maximum number of batched statements executed concurrently by PreparedStatement.executeBatch.", null);
+        addPropInfo(propInfos, REWRITE_BATCHED_STATEMENTS, REWRITE_BATCHED_STATEMENTS_DEFAULT,
+                "Rewrite batched INSERT/UPSERT ... VALUES statements into multi-VALUES statements.", BOOL_CHOICES);
+        addPropInfo(propInfos, BATCH_REWRITE_SIZE, Integer.toString(BATCH_REWRITE_SIZE_DEFAULT),
+                "Maximum number of rows in a rewritten multi-VALUES statement.", null);
         addPropInfo(propInfos, ScanConsistency.QUERY_SCAN_CONSISTENCY,
                 ScanConsistency.QUERY_SCAN_CONSISTENCY_DEFAULT.toString(),
                 "Query scan consistency.",
                 ScanConsistency.CHOICES);
 
+        addPropInfo(propInfos, CLUSTER_IDLE_TIMEOUT, Long.toString(CLUSTER_IDLE_TIMEOUT_DEFAULT),
+                "Milliseconds a cluster shared between connections to the same endpoint stays open " +
+                        "after the last of them is closed. 0 closes it immediately.", null);
+
+        addPropInfo(propInfos, PREPARED_CACHE_SIZE, Integer.toString(PREPARED_CACHE_SIZE_DEFAULT),
+                "Number of server-side prepared statements cached per cluster. 0 disables the cache.", null);
+
         addPropInfo(propInfos, LOGGING_LEVEL, LOGGING_LEVEL_DEFAULT, "", LOGGING_LEVEL_CHOICES);
 
         return propInfos.toArray(new DriverPropertyInfo[0]);
@@ -70,10 +197,71 @@ public class DriverPropertyInfoHelper {
         propInfos.add(newProp);
     }
 
+    public static int getIntProperty(Properties properties, String name, int defaultValue) {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     public static boolean isTrue(String value) {
         return value != null && (value.equals("1") || value.toLowerCase(Locale.ENGLISH).equals("true"));
     }
 
+    /**
+     * @return the constant named by the property ignoring case, or {@code defaultValue} if it is not set or unknown
+     */
+    public static <E extends Enum<E>> E getEnumProperty(Properties properties, String name, E defaultValue) {
+        return parseEnum(properties.getProperty(name), defaultValue);
+    }
+
+    public static <E extends Enum<E>> E parseEnum(String value, E defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(defaultValue.getDeclaringClass(), value.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return the property value of the constant, its name in lower case
+     */
+    public static String enumValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ENGLISH);
+    }
+
+    private static String[] enumChoices(Class<? extends Enum<?>> enumClass) {
+        return Stream.of(enumClass.getEnumConstants()).map(DriverPropertyInfoHelper::enumValue).toArray(String[]::new);
+    }
+
+    public enum MultiGetOrder {
+        INPUT, COMPLETION
+    }
+
+    public enum ResultSetColumns {
+        SINGLE, PROJECTION
+    }
+
+    public enum RowDecoding {
+        OBJECT, LAZY
+    }
+
+    public enum SamplingMode {
+        CLIENT, INFER, HYBRID
+    }
+
+    public enum MetricsExporter {
+        NONE, JMX
+    }
+
     public static class ScanConsistency {
         private ScanConsistency() {
             // empty
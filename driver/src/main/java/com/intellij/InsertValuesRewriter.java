@@ -0,0 +1,94 @@
+package com.intellij;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+import static java.util.regex.Pattern.DOTALL;
+
+/**
+ * Folds several parameter sets of {@code INSERT/UPSERT INTO ks (KEY, VALUE) VALUES (?, ?)}
+ * into a single statement with multiple {@code VALUES} tuples.
+ */
+class InsertValuesRewriter {
+    private static final Pattern INSERT_VALUES_PATTERN = Pattern.compile(
+            "\\s*(?<prefix>(?:INSERT|UPSERT)\\s+INTO\\s+.+?\\(\\s*KEY\\s*,\\s*VALUE(?:\\s*,\\s*OPTIONS)?\\s*\\)\\s*VALUES\\s*)" +
+                    "(?<tuple>\\(.*\\))\\s*;?\\s*", CASE_INSENSITIVE | DOTALL);
+
+    private final String prefix;
+    private final String tuple;
+
+    private InsertValuesRewriter(@NotNull String prefix, @NotNull String tuple) {
+        this.prefix = prefix;
+        this.tuple = tuple;
+    }
+
+    /**
+     * @return rewriter for the statement or null if the statement is not a single-tuple
+     * {@code INSERT/UPSERT ... VALUES} with {@code parametersCount} positional parameters
+     */
+    @Nullable
+    static InsertValuesRewriter create(@NotNull String sql, int parametersCount) {
+        Matcher matcher = INSERT_VALUES_PATTERN.matcher(sql);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String tuple = matcher.group("tuple");
+        if (parametersCount == 0 || !isSingleTuple(tuple, parametersCount)) {
+            return null;
+        }
+        return new InsertValuesRewriter(matcher.group("prefix"), tuple);
+    }
+
+    /**
+     * Checks that the tuple is one parenthesized group with exactly {@code parametersCount} {@code ?} placeholders
+     * and no numbered or named parameters, so that repeating it keeps parameters positional.
+     */
+    private static boolean isSingleTuple(@NotNull String tuple, int parametersCount) {
+        int depth = 0;
+        int placeholders = 0;
+        char quote = 0;
+        for (int i = 0; i < tuple.length(); i++) {
+            char c = tuple.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            switch (c) {
+                case '\'':
+                case '"':
+                case '`':
+                    quote = c;
+                    break;
+                case '(':
+                    depth++;
+                    break;
+                case ')':
+                    depth--;
+                    if (depth == 0 && i != tuple.length() - 1) {
+                        return false;
+                    }
+                    break;
+                case '?':
+                    placeholders++;
+                    break;
+                case '$':
+                    return false;
+            }
+        }
+        return depth == 0 && quote == 0 && placeholders == parametersCount;
+    }
+
+    @NotNull
+    String rewrite(int rows) {
+        return prefix + String.join(", ", Collections.nCopies(rows, tuple));
+    }
+}
@@ -0,0 +1,130 @@
+package com.intellij;
+
+import com.couchbase.client.core.error.CouchbaseException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.couchbase.client.core.util.CbThrowables.findCause;
+
+/**
+ * Per-cluster LRU cache of server-side prepared plan names keyed by normalized statement text.
+ */
+public class PreparedStatementCache {
+    private static final Set<String> PREPARABLE_STATEMENTS = new HashSet<>(Arrays.asList(
+            "SELECT", "WITH", "INSERT", "UPSERT", "UPDATE", "DELETE", "MERGE"));
+    /**
+     * No such prepared statement, unrecognizable prepared statement and prepared name mismatch errors.
+     * The server reports them when a plan was evicted, e.g. after a query node restart.
+     */
+    private static final Set<String> PLAN_NOT_FOUND_CODES = new HashSet<>(Arrays.asList("4040", "4050", "4070"));
+
+    private final int capacity;
+    private final Consumer<String> onEviction;
+    private final Map<String, String> plans;
+    private final String namePrefix = "jdbc_" + UUID.randomUUID().toString().substring(0, 8) + "_";
+    private final AtomicLong nameCounter = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param capacity   maximum number of cached plans, 0 disables the cache
+     * @param onEviction receives names of plans dropped from the cache
+     */
+    public PreparedStatementCache(int capacity, @NotNull Consumer<String> onEviction) {
+        this.capacity = capacity;
+        this.onEviction = onEviction;
+        this.plans = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > PreparedStatementCache.this.capacity) {
+                    PreparedStatementCache.this.onEviction.accept(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    public static boolean isPreparable(@NotNull String sql) {
+        return PREPARABLE_STATEMENTS.contains(SqlUtil.firstKeyword(sql));
+    }
+
+    @Nullable
+    public synchronized String get(@NotNull String normalizedSql) {
+        String name = plans.get(normalizedSql);
+        if (name == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return name;
+    }
+
+    /**
+     * Caches the plan unless another one was cached for the statement meanwhile, e.g. by a concurrent miss.
+     * The plan that is not cached is passed to the eviction callback, the cached one may be in use.
+     *
+     * @return name of the cached plan to execute
+     */
+    @NotNull
+    public synchronized String put(@NotNull String normalizedSql, @NotNull String name) {
+        String existing = plans.putIfAbsent(normalizedSql, name);
+        if (existing != null && !existing.equals(name)) {
+            onEviction.accept(name);
+            return existing;
+        }
+        return name;
+    }
+
+    /**
+     * Drops the plan which the server no longer knows, unless the statement is already mapped to another plan.
+     */
+    public synchronized void invalidate(@NotNull String normalizedSql, @NotNull String failedName) {
+        plans.remove(normalizedSql, failedName);
+    }
+
+    public synchronized void clear() {
+        plans.clear();
+    }
+
+    @NotNull
+    public String newPlanName() {
+        return namePrefix + nameCounter.incrementAndGet();
+    }
+
+    public static boolean isPlanNotFound(@NotNull Throwable t) {
+        return findCause(t, CouchbaseException.class)
+                .map(e -> CouchbaseError.create(e).getErrorEntries().stream()
+                        .anyMatch(entry -> PLAN_NOT_FOUND_CODES.contains(entry.getErrorCode())))
+                .orElse(false);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getSize() {
+        return plans.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+}
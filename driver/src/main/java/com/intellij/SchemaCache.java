@@ -0,0 +1,245 @@
+package com.intellij;
+
+import com.intellij.meta.ColumnInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Per-cluster cache of keyspace schemas inferred by {@link CouchbaseDocumentsSampler}, keyed by namespace,
+ * keyspace and sampling settings, e.g. {@code client:1000:0} for mode, sample size and stable size. Entries expire after the TTL of the reading connection and are dropped when
+ * the driver creates or drops the bucket. Available with {@code connection.unwrap(SchemaCache.class)}
+ * to force a refresh. With {@code meta.cache.dir}, schemas are also kept in a {@link SchemaStore} per cluster.
+ */
+public class SchemaCache {
+    private static final Logger LOG = Logger.getLogger(SchemaCache.class.getName());
+    private static final Pattern CLUSTER_UUID = Pattern.compile("[0-9a-zA-Z\\-]+");
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+    /**
+     * Incremented by every invalidation, so that a schema sampled concurrently with it is not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+    /**
+     * Start times of background refreshes of stored schemas.
+     */
+    private final Map<Key, Long> refreshes = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * Stores by directory, null if the cluster UUID could not be obtained.
+     */
+    private final Map<Path, SchemaStore> stores = new HashMap<>();
+    private final ReentrantLock storesLock = new ReentrantLock();
+
+    public SchemaCache() {
+        this(System::nanoTime);
+    }
+
+    SchemaCache(@NotNull LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @param ttlMillis maximum age of the schema, 0 bypasses the cache
+     * @return null if the schema is not cached or expired
+     */
+    @Nullable
+    public List<ColumnInfo> get(@NotNull String namespace, @NotNull String keyspace, @NotNull String sampling,
+                                long ttlMillis) {
+        if (ttlMillis <= 0) {
+            return null;
+        }
+        Entry entry = entries.get(new Key(namespace, keyspace, sampling));
+        if (entry == null || nanoClock.getAsLong() - entry.loadedAt >= TimeUnit.MILLISECONDS.toNanos(ttlMillis)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.columns;
+    }
+
+    /**
+     * @return value to pass to {@link #put} once the schema is sampled
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Caches the schema unless the cache was invalidated after {@code generation} was obtained.
+     */
+    public void put(@NotNull String namespace, @NotNull String keyspace, @NotNull String sampling,
+                    @NotNull Collection<ColumnInfo> columns, long generation) {
+        Key key = new Key(namespace, keyspace, sampling);
+        entries.put(key, new Entry(List.copyOf(columns), nanoClock.getAsLong()));
+        if (this.generation.get() != generation) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Claims the background refresh of a stored schema, so that connections reading it start one refresh per window.
+     *
+     * @return false if a refresh of the schema started less than {@code windowMillis} ago
+     */
+    boolean tryStartRefresh(@NotNull String namespace, @NotNull String keyspace, @NotNull String sampling,
+                            long windowMillis) {
+        long now = nanoClock.getAsLong();
+        long window = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        AtomicBoolean isStarted = new AtomicBoolean();
+        refreshes.compute(new Key(namespace, keyspace, sampling), (key, previous) -> {
+            if (previous != null && now - previous < window) {
+                return previous;
+            }
+            isStarted.set(true);
+            return now;
+        });
+        return isStarted.get();
+    }
+
+    /**
+     * Persists the schema unless the cache was invalidated after {@code generation} was obtained.
+     * Like {@link #put}, the schema is removed again if an invalidation ran concurrently with the write.
+     */
+    void store(@NotNull SchemaStore store, @NotNull String namespace, @NotNull String keyspace,
+               @NotNull String sampling, @NotNull Collection<ColumnInfo> columns, long generation) {
+        store.put(namespace, keyspace, sampling, columns);
+        if (this.generation.get() != generation) {
+            store.remove(namespace, keyspace);
+        }
+    }
+
+    /**
+     * Drops schemas of the keyspace sampled with any settings.
+     */
+    public void invalidate(@NotNull String namespace, @NotNull String keyspace) {
+        generation.incrementAndGet();
+        entries.keySet().removeIf(key ->
+                Objects.equals(key.namespace, namespace) && Objects.equals(key.keyspace, keyspace));
+        forEachStore(store -> store.remove(namespace, keyspace));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        forEachStore(SchemaStore::clear);
+    }
+
+    /**
+     * @param clusterUuid called once per directory, the store file is named after the UUID
+     * @return null if the UUID is not available
+     */
+    @Nullable
+    SchemaStore getStore(@NotNull Path directory, @NotNull Callable<String> clusterUuid) {
+        storesLock.lock();
+        try {
+            if (!stores.containsKey(directory)) {
+                String uuid = null;
+                try {
+                    uuid = clusterUuid.call();
+                } catch (Exception e) {
+                    LOG.log(Level.FINE, "Cluster UUID is not available, schemas are not persisted", e);
+                }
+                boolean valid = uuid != null && CLUSTER_UUID.matcher(uuid).matches();
+                stores.put(directory, valid ? SchemaStore.forFile(directory.resolve(uuid + ".schemas")) : null);
+            }
+            return stores.get(directory);
+        } finally {
+            storesLock.unlock();
+        }
+    }
+
+    /**
+     * Writes pending changes of stores.
+     */
+    void flush() {
+        forEachStore(SchemaStore::flush);
+    }
+
+    private void forEachStore(@NotNull Consumer<SchemaStore> action) {
+        List<SchemaStore> snapshot;
+        storesLock.lock();
+        try {
+            snapshot = new ArrayList<>(stores.values());
+        } finally {
+            storesLock.unlock();
+        }
+        for (SchemaStore store : snapshot) {
+            if (store != null) {
+                action.accept(store);
+            }
+        }
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private static final class Key {
+        private final String namespace;
+        private final String keyspace;
+        private final String sampling;
+
+        Key(@NotNull String namespace, @NotNull String keyspace, @NotNull String sampling) {
+            this.namespace = namespace;
+            this.keyspace = keyspace;
+            this.sampling = sampling;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return sampling.equals(that.sampling) && Objects.equals(namespace, that.namespace) &&
+                    Objects.equals(keyspace, that.keyspace);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(namespace, keyspace, sampling);
+        }
+    }
+
+    private static final class Entry {
+        private final List<ColumnInfo> columns;
+        private final long loadedAt;
+
+        Entry(@NotNull List<ColumnInfo> columns, long loadedAt) {
+            this.columns = columns;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
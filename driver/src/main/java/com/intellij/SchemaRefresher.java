@@ -0,0 +1,60 @@
+package com.intellij;
+
+import org.jetbrains.annotations.NotNull;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background schema refreshes of a connection. At most {@code parallelism} refreshes run at a time, the rest wait
+ * in submission order; pending and running refreshes are cancelled when the connection is closed.
+ */
+final class SchemaRefresher {
+    private final int parallelism;
+    /**
+     * Serializes emissions to the sink and guards the subscription.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private Sinks.Many<Mono<?>> refreshes;
+    private Disposable subscription;
+    private boolean isClosed = false;
+
+    SchemaRefresher(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @param refresh handles its own errors, it is dropped if the connection is already closed
+     */
+    void submit(@NotNull Mono<?> refresh) {
+        lock.lock();
+        try {
+            if (isClosed) {
+                return;
+            }
+            if (refreshes == null) {
+                refreshes = Sinks.many().unicast().onBackpressureBuffer();
+                subscription = refreshes.asFlux()
+                        .flatMap(mono -> mono.onErrorResume(e -> Mono.empty()), parallelism)
+                        .subscribe();
+            }
+            refreshes.tryEmitNext(refresh);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            isClosed = true;
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.intellij;
+
+import com.intellij.meta.ColumnInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keyspace schemas of one cluster persisted in a local file, so that new sessions get them without sampling.
+ * The file is read on first lookup and only the keys of its entries are decoded then; columns of an entry
+ * are decoded when it is requested. Changes are written to a temporary file which replaces the store shortly after.
+ * Connections with different credentials to the same cluster share one instance per file, see {@link #forFile}.
+ * <p>
+ * Format: magic, version and entry count, then for every entry its key, length of the columns block and
+ * the block itself: column count and name, JDBC type and type name of every column.
+ * Integers are big-endian, strings are UTF-8 prefixed with their length in bytes.
+ */
+class SchemaStore {
+    private static final Logger LOG = Logger.getLogger(SchemaStore.class.getName());
+    private static final int MAGIC = 0x43425343; // CBSC
+    private static final int VERSION = 1;
+    private static final long FLUSH_DELAY_MILLIS = 1000;
+    private static final char KEY_SEPARATOR = '\0';
+    private static final Map<Path, SchemaStore> STORES = new ConcurrentHashMap<>();
+
+    private final Path file;
+    /**
+     * Not a monitor: loading and writing the store block on file I/O, which would pin a virtual thread.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Orders writes of the file, so that an older snapshot never replaces a newer one.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    /**
+     * Key to an undecoded columns block of the file or to decoded columns.
+     */
+    private Map<String, Object> entries;
+    private boolean flushScheduled;
+
+    SchemaStore(@NotNull Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the store of the file shared by all connections of the driver, so that they do not overwrite
+     * each other's changes
+     */
+    @NotNull
+    static SchemaStore forFile(@NotNull Path file) {
+        return STORES.computeIfAbsent(file.toAbsolutePath().normalize(), SchemaStore::new);
+    }
+
+    @NotNull
+    Path getFile() {
+        return file;
+    }
+
+    @Nullable
+    List<ColumnInfo> get(@NotNull String namespace, @NotNull String keyspace, @NotNull String sampling) {
+        String key = key(namespace, keyspace, sampling);
+        lock.lock();
+        try {
+            Object entry = load().get(key);
+            if (entry instanceof ByteBuffer) {
+                try {
+                    entry = readColumns(((ByteBuffer) entry).duplicate());
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    LOG.log(Level.FINE, "Corrupted schema of " + keyspace + " in " + file, e);
+                    entries.remove(key);
+                    return null;
+                }
+                entries.put(key, entry);
+            }
+            @SuppressWarnings("unchecked")
+            List<ColumnInfo> columns = (List<ColumnInfo>) entry;
+            return columns;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(@NotNull String namespace, @NotNull String keyspace, @NotNull String sampling,
+             @NotNull Collection<ColumnInfo> columns) {
+        update(entries -> entries.put(key(namespace, keyspace, sampling), List.copyOf(columns)));
+    }
+
+    void remove(@NotNull String namespace, @NotNull String keyspace) {
+        String prefix = key(namespace, keyspace, "");
+        update(entries -> entries.keySet().removeIf(key -> key.startsWith(prefix)));
+    }
+
+    void clear() {
+        update(Map::clear);
+    }
+
+    private void update(@NotNull Consumer<Map<String, Object>> change) {
+        lock.lock();
+        try {
+            change.accept(load());
+            if (!flushScheduled) {
+                flushScheduled = true;
+                Schedulers.boundedElastic().schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @NotNull
+    private Map<String, Object> load() {
+        if (entries != null) {
+            return entries;
+        }
+        entries = new LinkedHashMap<>();
+        try {
+            // read into the heap rather than mapped: a mapped file cannot be replaced on Windows
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                LOG.log(Level.FINE, "Ignoring schema store of unknown format " + file);
+                return entries;
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(buffer);
+                int length = buffer.getInt();
+                ByteBuffer columns = buffer.slice();
+                columns.limit(length);
+                buffer.position(buffer.position() + length);
+                entries.put(key, columns);
+            }
+        } catch (NoSuchFileException ignore) {
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.FINE, "Failed to read schema store " + file, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Writes pending changes, decoding remaining entries first.
+     */
+    void flush() {
+        writeLock.lock();
+        try {
+            Map<String, List<ColumnInfo>> snapshot = new LinkedHashMap<>();
+            lock.lock();
+            try {
+                if (!flushScheduled) {
+                    return;
+                }
+                flushScheduled = false;
+                for (String key : new ArrayList<>(load().keySet())) {
+                    String[] parts = key.split(String.valueOf(KEY_SEPARATOR), -1);
+                    List<ColumnInfo> columns = get(parts[0], parts[1], parts[2]);
+                    if (columns != null) {
+                        snapshot.put(key, columns);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream stream = Files.newOutputStream(temp)) {
+                    write(new DataOutputStream(new BufferedOutputStream(stream)), snapshot);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Failed to write schema store " + file, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void write(@NotNull DataOutputStream out, @NotNull Map<String, List<ColumnInfo>> entries)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        DataOutputStream blockOut = new DataOutputStream(block);
+        for (Map.Entry<String, List<ColumnInfo>> entry : entries.entrySet()) {
+            block.reset();
+            blockOut.writeInt(entry.getValue().size());
+            for (ColumnInfo column : entry.getValue()) {
+                writeString(blockOut, column.getName());
+                blockOut.writeInt(column.getType());
+                writeString(blockOut, column.getTypeName());
+            }
+            writeString(out, entry.getKey());
+            out.writeInt(block.size());
+            block.writeTo(out);
+        }
+        out.flush();
+    }
+
+    @NotNull
+    private static List<ColumnInfo> readColumns(@NotNull ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative column count");
+        }
+        List<ColumnInfo> columns = new ArrayList<>(Math.min(count, buffer.remaining()));
+        for (int i = 0; i < count; i++) {
+            String name = readString(buffer);
+            int type = buffer.getInt();
+            columns.add(new ColumnInfo(name, type, readString(buffer)));
+        }
+        return List.copyOf(columns);
+    }
+
+    private static void writeString(@NotNull DataOutputStream out, @NotNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @NotNull
+    private static String readString(@NotNull ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @NotNull
+    private static String key(@NotNull String namespace, @NotNull String keyspace, @NotNull String sampling) {
+        return namespace + KEY_SEPARATOR + keyspace + KEY_SEPARATOR + sampling;
+    }
+}
@@ -0,0 +1,150 @@
+package com.intellij;
+
+import com.couchbase.client.java.Cluster;
+import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.json.JsonObject;
+import com.couchbase.client.java.query.QueryOptions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static com.intellij.DriverPropertyInfoHelper.SLOW_QUERY_EXPLAIN;
+import static com.intellij.DriverPropertyInfoHelper.SLOW_QUERY_LOG_FILE;
+import static com.intellij.DriverPropertyInfoHelper.SLOW_QUERY_LOG_FILE_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.SLOW_QUERY_LOG_PARAMETERS;
+import static com.intellij.DriverPropertyInfoHelper.SLOW_QUERY_THRESHOLD;
+import static com.intellij.DriverPropertyInfoHelper.SLOW_QUERY_THRESHOLD_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.getIntProperty;
+import static com.intellij.DriverPropertyInfoHelper.isTrue;
+
+/**
+ * Writes queries which took at least {@code slowquery.threshold.ms} on the query service to rotating local files,
+ * together with their metrics and, with {@code slowquery.explain}, their plan.
+ */
+class SlowQueryLog {
+    private static final Logger LOG = Logger.getLogger(SlowQueryLog.class.getName());
+    private static final int FILE_LIMIT = 10 << 20;
+    private static final int FILE_COUNT = 5;
+    private static final Duration EXPLAIN_TIMEOUT = Duration.ofSeconds(30);
+    private static final Set<String> EXPLAINABLE = Set.of("SELECT", "WITH", "UPDATE", "DELETE", "INSERT", "UPSERT", "MERGE");
+    /**
+     * Handlers by file pattern, shared by connections since a file may be opened only once.
+     */
+    private static final Map<String, Handler> HANDLERS = new ConcurrentHashMap<>();
+
+    private final Duration threshold;
+    private final Handler handler;
+    private final boolean logParameters;
+    private final boolean explain;
+
+    private SlowQueryLog(@NotNull Duration threshold, @NotNull Handler handler, boolean logParameters, boolean explain) {
+        this.threshold = threshold;
+        this.handler = handler;
+        this.logParameters = logParameters;
+        this.explain = explain;
+    }
+
+    /**
+     * @return null if the log is disabled or its file cannot be opened
+     */
+    @Nullable
+    static SlowQueryLog create(@NotNull Properties properties) {
+        int threshold = getIntProperty(properties, SLOW_QUERY_THRESHOLD, SLOW_QUERY_THRESHOLD_DEFAULT);
+        if (threshold <= 0) {
+            return null;
+        }
+        String pattern = properties.getProperty(SLOW_QUERY_LOG_FILE, SLOW_QUERY_LOG_FILE_DEFAULT);
+        Handler handler;
+        try {
+            handler = HANDLERS.computeIfAbsent(pattern, SlowQueryLog::createHandler);
+        } catch (UncheckedIOException e) {
+            LOG.log(Level.WARNING, "Cannot open slow query log " + pattern, e.getCause());
+            return null;
+        }
+        return new SlowQueryLog(Duration.ofMillis(threshold), handler,
+                isTrue(properties.getProperty(SLOW_QUERY_LOG_PARAMETERS)), isTrue(properties.getProperty(SLOW_QUERY_EXPLAIN)));
+    }
+
+    private static Handler createHandler(@NotNull String pattern) {
+        try {
+            FileHandler handler = new FileHandler(pattern, FILE_LIMIT, FILE_COUNT, true);
+            handler.setEncoding(StandardCharsets.UTF_8.name());
+            handler.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord record) {
+                    return record.getInstant() + " " + record.getMessage() + System.lineSeparator();
+                }
+            });
+            return handler;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return true if parameters of statements are needed by {@link #log}
+     */
+    boolean needsParameters() {
+        return logParameters || explain;
+    }
+
+    /**
+     * Writes the query if it is slow, without waiting for its plan.
+     */
+    void log(@NotNull Cluster cluster, @NotNull String sql, @Nullable Object[] parameters,
+             @NotNull CouchbaseQueryMetrics metrics) {
+        if (!metrics.isComplete() || metrics.getElapsedTime().compareTo(threshold) < 0) {
+            return;
+        }
+        StringBuilder entry = new StringBuilder("slow query: ").append(metrics)
+                .append("\n  client context id: ").append(metrics.getClientContextId())
+                .append("\n  statement: ").append(sql);
+        if (parameters != null && parameters.length > 0) {
+            entry.append("\n  parameters: ")
+                    .append(logParameters ? Arrays.toString(parameters) : "<" + parameters.length + " redacted>");
+        }
+        if (!explain || !EXPLAINABLE.contains(SqlUtil.firstKeyword(sql))) {
+            publish(entry.toString());
+            return;
+        }
+        explain(cluster, sql, parameters)
+                .map(plan -> "\n  plan: " + plan)
+                .onErrorResume(e -> Mono.just("\n  plan is not available: " + e.getMessage()))
+                .defaultIfEmpty("")
+                .subscribe(plan -> publish(entry + plan));
+    }
+
+    private static Mono<JsonObject> explain(@NotNull Cluster cluster, @NotNull String sql, @Nullable Object[] parameters) {
+        return Mono.defer(() -> {
+            QueryOptions options = QueryOptions.queryOptions();
+            if (parameters != null && parameters.length > 0) {
+                options.parameters(JsonArray.from(parameters));
+            }
+            return cluster.reactive().query("EXPLAIN " + sql, options);
+        }).flatMap(result -> result.rowsAsObject().next()).timeout(EXPLAIN_TIMEOUT);
+    }
+
+    private void publish(@NotNull String message) {
+        LogRecord record = new LogRecord(Level.INFO, message);
+        record.setInstant(Instant.now());
+        handler.publish(record);
+        handler.flush();
+    }
+}
@@ -0,0 +1,185 @@
+package com.intellij;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class SqlUtil {
+    private static final Pattern LIMIT_TAIL = Pattern.compile(
+            "\\s+(?<limit>\\d+)(?<rest>\\s+OFFSET\\s+.*)?", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Set<String> QUERY_KEYWORDS = Set.of("SELECT", "WITH", "EXPLAIN", "ADVISE");
+
+    private SqlUtil() {
+    }
+
+    /**
+     * Collapses whitespace outside of string literals and quoted identifiers and removes a trailing semicolon,
+     * so that statements differing only in formatting are considered equal.
+     */
+    @Contract(pure = true)
+    public static @NotNull String normalize(@NotNull String sql) {
+        StringBuilder result = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                result.append(c);
+                if (c == '\\' && i + 1 < sql.length()) {
+                    result.append(sql.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = result.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                result.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            }
+            result.append(c);
+        }
+        return StringUtil.trimEnd(result.toString(), ';').trim();
+    }
+
+    /**
+     * @return the first keyword of the statement in upper case, or an empty string
+     */
+    @Contract(pure = true)
+    public static @NotNull String firstKeyword(@NotNull String sql) {
+        int start = 0;
+        while (true) {
+            start = skipComments(sql, start);
+            if (start >= sql.length() || sql.charAt(start) != '(') {
+                break;
+            }
+            start++;
+        }
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return sql.substring(start, end).toUpperCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return true if the statement always returns a result, as opposed to DML and DDL statements
+     * which may only report a mutation count
+     */
+    @Contract(pure = true)
+    public static boolean isQuery(@NotNull String sql) {
+        return QUERY_KEYWORDS.contains(firstKeyword(sql));
+    }
+
+    /**
+     * @return index of the first character at or after {@code start} which is not whitespace or part of
+     * a line or block comment
+     */
+    @Contract(pure = true)
+    private static int skipComments(@NotNull String sql, int start) {
+        int i = start;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            char next = i + 1 < sql.length() ? sql.charAt(i + 1) : 0;
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && next == '-') {
+                int end = sql.indexOf('\n', i + 2);
+                i = end == -1 ? sql.length() : end + 1;
+            } else if (c == '/' && next == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end == -1 ? sql.length() : end + 2;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Appends {@code LIMIT maxRows} to a SELECT statement or lowers its top-level literal limit to {@code maxRows}.
+     * Leading comments are kept as they are.
+     *
+     * @return the statement unchanged if it is not a SELECT, has comments after its start,
+     * or its limit is not a literal
+     */
+    @Contract(pure = true)
+    public static @NotNull String limit(@NotNull String sql, int maxRows) {
+        if (maxRows <= 0 || !"SELECT".equals(firstKeyword(sql))) {
+            return sql;
+        }
+        int start = skipComments(sql, 0);
+        String leadingComments = sql.substring(0, start);
+        String statement = StringUtil.trimEnd(sql.substring(start).trim(), ';').trim();
+        int limitStart = -1;
+        int limitEnd = -1;
+        boolean hasOffset = false;
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < statement.length(); i++) {
+            char c = statement.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            char next = i + 1 < statement.length() ? statement.charAt(i + 1) : 0;
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '(' || c == '[' || c == '{') {
+                depth++;
+            } else if (c == ')' || c == ']' || c == '}') {
+                depth--;
+            } else if (c == ';' || c == '-' && next == '-' || c == '/' && next == '*') {
+                return sql;
+            } else if (depth == 0 && Character.isLetter(c) && (i == 0 || !isIdentifierPart(statement.charAt(i - 1)))) {
+                int end = i;
+                while (end < statement.length() && isIdentifierPart(statement.charAt(end))) {
+                    end++;
+                }
+                String word = statement.substring(i, end).toUpperCase(Locale.ENGLISH);
+                if ("LIMIT".equals(word)) {
+                    limitStart = i;
+                    limitEnd = end;
+                } else if ("OFFSET".equals(word)) {
+                    hasOffset = true;
+                }
+                i = end - 1;
+            }
+        }
+        if (quote != 0 || depth != 0) {
+            return sql;
+        }
+        if (limitStart == -1) {
+            return hasOffset ? sql : leadingComments + statement + " LIMIT " + maxRows;
+        }
+        Matcher matcher = LIMIT_TAIL.matcher(statement).region(limitEnd, statement.length());
+        if (!matcher.matches()) {
+            return sql;
+        }
+        String limit = matcher.group("limit");
+        if (limit.length() < 10 && Integer.parseInt(limit) <= maxRows) {
+            return sql;
+        }
+        String rest = matcher.group("rest");
+        return leadingComments + statement.substring(0, limitStart) + "LIMIT " + maxRows + (rest == null ? "" : rest);
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$';
+    }
+}
@@ -30,6 +30,8 @@ import java.util.regex.Pattern;
 
 import static com.couchbase.client.core.util.CbThrowables.findCause;
 import static com.couchbase.client.core.util.CbThrowables.hasCause;
+import static com.intellij.BlockingUtil.await;
+import static com.intellij.CouchbaseMetaData.DEFAULT_SCHEMA;
 import static com.intellij.CouchbaseMetaData.SYSTEM_SCHEMA;
 import static java.util.regex.Pattern.CASE_INSENSITIVE;
 import static java.util.regex.Pattern.DOTALL;
@@ -77,8 +79,9 @@ public class CreateBucketExecutor implements CustomDdlExecutor {
             } catch (BucketExistsException ignore) {
                 // ignore
             }
+            connection.getSchemaCache().invalidate(schema != null ? schema : DEFAULT_SCHEMA, name);
             if (matcher.group("index") != null) {
-                Mono.fromRunnable(() -> createIndex(cluster, name))
+                await(Mono.fromRunnable(() -> createIndex(cluster, name))
                         .retryWhen(Retry.onlyIf(ctx ->
                                 findCause(ctx.exception(), InternalServerFailureException.class)
                                     .filter(exception -> CouchbaseError.create(exception)
@@ -87,14 +90,12 @@ public class CreateBucketExecutor implements CustomDdlExecutor {
                                     .isPresent())
                                 .exponentialBackoff(Duration.ofMillis(50), Duration.ofSeconds(3))
                                 .timeout(Duration.ofSeconds(60))
-                                .toReactorRetry())
-                        .block();
-                Mono.fromRunnable(() -> waitForIndex(cluster, name))
+                                .toReactorRetry()));
+                await(Mono.fromRunnable(() -> waitForIndex(cluster, name))
                         .retryWhen(Retry.onlyIf(ctx -> hasCause(ctx.exception(), IndexNotFoundException.class))
                                 .exponentialBackoff(Duration.ofMillis(50), Duration.ofSeconds(3))
                                 .timeout(Duration.ofSeconds(30))
-                                .toReactorRetry())
-                        .block();
+                                .toReactorRetry()));
                 IndexCommons.waitUntilReady(cluster, name, Duration.ofSeconds(60));
             } else if (matcher.group("wait") != null) {
                 waitForBucketSetup(name, connection.getCluster());
@@ -105,7 +106,7 @@ public class CreateBucketExecutor implements CustomDdlExecutor {
     }
 
     private void waitForBucketSetup(String name, Cluster cluster) {
-        Mono.fromRunnable(() -> {
+        await(Mono.fromRunnable(() -> {
             HttpResponse response;
             try {
                 response = cluster.httpClient().get(HttpTarget.manager(), HttpPath.of("/pools/default/buckets/{}/docs?include_docs=false", name));
@@ -120,8 +121,7 @@ public class CreateBucketExecutor implements CustomDdlExecutor {
         }).retryWhen(Retry.any()
             .exponentialBackoff(Duration.ofMillis(50), Duration.ofSeconds(3))
             .timeout(Duration.ofSeconds(30))
-            .toReactorRetry())
-            .block();
+            .toReactorRetry()));
     }
 
     private void createIndex(Cluster cluster, String bucketName) {
@@ -14,6 +14,7 @@ import java.time.Duration;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static com.intellij.CouchbaseMetaData.DEFAULT_SCHEMA;
 import static com.intellij.CouchbaseMetaData.SYSTEM_SCHEMA;
 import static java.util.regex.Pattern.CASE_INSENSITIVE;
 
@@ -47,6 +48,7 @@ class DropBucketExecutor implements CustomDdlExecutor {
                 cluster.buckets().dropBucket(name);
                 IndexCommons.waitUntilOffline(cluster, name, Duration.ofSeconds(30));
             } catch (BucketNotFoundException ignore) { }
+            connection.getSchemaCache().invalidate(schema != null ? schema : DEFAULT_SCHEMA, name);
             return new ExecutionResult(true);
         }
         return new ExecutionResult(false);
@@ -19,6 +19,7 @@ import java.sql.SQLException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static com.intellij.BlockingUtil.await;
 import static com.intellij.CouchbaseMetaData.SYSTEM_SCHEMA;
 import static java.util.regex.Pattern.CASE_INSENSITIVE;
 
@@ -57,7 +58,7 @@ class GetBucketKeysExecutor implements CustomDdlExecutor {
         String url = "/pools/default/buckets/" + URLEncoder.encode(name, StandardCharsets.UTF_8) + "/docs?include_docs=false";
         if (limit != null) url += "&limit=" + limit;
         if (offset != null) url += "&skip=" + offset;
-        RawManagerResponse response = RawManager.call(connection.getCluster(), RawManagerRequest.get(ServiceType.MANAGER, url)).block();
+        RawManagerResponse response = await(RawManager.call(connection.getCluster(), RawManagerRequest.get(ServiceType.MANAGER, url)));
         if (response != null && response.httpStatus() == 404) throw BucketNotFoundException.forBucket(name);
         else if (response == null || response.httpStatus() != 200) throw new SQLException("Request did not succeed. Http status: " + (response == null ? null : response.httpStatus()));
         JsonObject jsonObject = response.contentAs(JsonObject.class);
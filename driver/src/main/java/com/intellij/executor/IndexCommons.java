@@ -21,6 +21,7 @@ import java.util.concurrent.TimeoutException;
 import static com.couchbase.client.core.logging.RedactableArgument.redactMeta;
 import static com.couchbase.client.core.util.CbThrowables.findCause;
 import static com.couchbase.client.core.util.CbThrowables.hasCause;
+import static com.intellij.BlockingUtil.await;
 import static java.util.Collections.singletonMap;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
@@ -35,13 +36,12 @@ class IndexCommons {
     }
 
     private static void waitInner(Duration timeout, Runnable runnable) {
-        Mono.fromRunnable(runnable)
+        await(Mono.fromRunnable(runnable)
                 .retryWhen(Retry.onlyIf(ctx -> hasCause(ctx.exception(), IndexesNotReadyException.class))
                     .exponentialBackoff(Duration.ofMillis(50), Duration.ofSeconds(3))
                     .timeout(timeout)
                     .toReactorRetry())
-                .onErrorMap(t -> t instanceof RetryExhaustedException ? toWatchTimeoutException(t, timeout) : t)
-                .block();
+                .onErrorMap(t -> t instanceof RetryExhaustedException ? toWatchTimeoutException(t, timeout) : t));
     }
 
     private static TimeoutException toWatchTimeoutException(Throwable t, Duration timeout) {
@@ -0,0 +1,254 @@
+package com.intellij.executor;
+
+import com.couchbase.client.core.error.DocumentNotFoundException;
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.Collection;
+import com.couchbase.client.java.ReactiveCollection;
+import com.couchbase.client.java.kv.GetOptions;
+import com.couchbase.client.java.kv.GetResult;
+import com.couchbase.client.java.kv.RemoveOptions;
+import com.couchbase.client.java.kv.UpsertOptions;
+import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.json.JsonObject;
+import com.intellij.CouchbaseBaseStatement;
+import com.intellij.CouchbaseConnection;
+import com.intellij.CouchbaseError;
+import com.intellij.metrics.StatementKind;
+import com.intellij.resultset.CouchbaseReactiveResultSet;
+import com.intellij.resultset.JsonObjectRow;
+import com.intellij.resultset.ReactiveRows;
+import com.intellij.resultset.RowBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.intellij.BlockingUtil.await;
+import static com.intellij.DriverPropertyInfoHelper.KV_FAST_PATH;
+import static com.intellij.DriverPropertyInfoHelper.KV_MULTIGET_ORDER;
+import static com.intellij.DriverPropertyInfoHelper.KV_MULTIGET_ORDER_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.KV_MULTIGET_PARALLELISM;
+import static com.intellij.DriverPropertyInfoHelper.KV_MULTIGET_PARALLELISM_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.MultiGetOrder;
+import static com.intellij.DriverPropertyInfoHelper.getEnumProperty;
+import static com.intellij.DriverPropertyInfoHelper.getIntProperty;
+import static com.intellij.DriverPropertyInfoHelper.isTrue;
+
+/**
+ * Serves primary-key lookups and simple mutations (see {@link KeyValueStatement}) with the key-value service,
+ * bypassing parsing, planning and execution in the query service.
+ */
+public class KeyValueExecutor {
+    private final KeyValueStatement statement;
+
+    private KeyValueExecutor(@NotNull KeyValueStatement statement) {
+        this.statement = statement;
+    }
+
+    public static boolean isEnabled(@NotNull Properties properties) {
+        return isTrue(properties.getProperty(KV_FAST_PATH));
+    }
+
+    /**
+     * @return executor for the statement or null if the statement should be sent to the query service
+     */
+    @Nullable
+    public static KeyValueExecutor create(@NotNull String sql) {
+        KeyValueStatement statement = KeyValueStatement.parse(sql);
+        return statement == null ? null : new KeyValueExecutor(statement);
+    }
+
+    /**
+     * @return unsuccessful result if the bound parameters cannot be served by the key-value service
+     */
+    public ExecutionResult execute(@NotNull CouchbaseConnection connection, @NotNull CouchbaseBaseStatement owner,
+                                   @NotNull Object[] parameters) throws SQLException {
+        Object key = statement.key.evaluate(parameters);
+        if (statement.kind == KeyValueStatement.Kind.GET) {
+            List<String> ids = toKeys(key);
+            if (ids == null) {
+                return new ExecutionResult(false);
+            }
+            Duration timeout = getTimeout(owner);
+            Flux<JsonObjectRow> rows = owner.recorded(owner.cancellable(withDeadline(
+                    lookup(getCollection(connection), ids, connection.getProperties(), timeout), timeout))
+                    .map(JsonObjectRow::new), StatementKind.KEY_VALUE);
+            return new ExecutionResult(true, new CouchbaseReactiveResultSet(owner,
+                    new ReactiveRows(rows, owner.getFetchSize(), 0,
+                            RowBuffer.Watermarks.get(connection.getProperties()).withByteBudget(owner.getFetchBytes())),
+                    Mono.empty()));
+        }
+        if (!(key instanceof String)) {
+            return new ExecutionResult(false);
+        }
+        String id = (String) key;
+        if (connection.isReadOnly()) {
+            throw new SQLException("The server or request is read-only and cannot accept this write statement.");
+        }
+        ReactiveCollection collection = getCollection(connection).reactive();
+        Duration timeout = getTimeout(owner);
+        switch (statement.kind) {
+            case REMOVE:
+                RemoveOptions removeOptions = RemoveOptions.removeOptions();
+                if (timeout != null) {
+                    removeOptions.timeout(timeout);
+                }
+                try {
+                    await(owner.cancellable(collection.remove(id, removeOptions)));
+                    return new ExecutionResult(true, null, 1);
+                } catch (DocumentNotFoundException e) {
+                    return new ExecutionResult(true, null, 0);
+                } catch (RuntimeException e) {
+                    throw CouchbaseError.toSQLException(Exceptions.unwrap(e));
+                }
+            case UPSERT:
+                Object content = toContent(statement.value.evaluate(parameters));
+                if (content == null) {
+                    return new ExecutionResult(false);
+                }
+                UpsertOptions upsertOptions = UpsertOptions.upsertOptions();
+                if (timeout != null) {
+                    upsertOptions.timeout(timeout);
+                }
+                try {
+                    await(owner.cancellable(collection.upsert(id, content, upsertOptions)));
+                } catch (RuntimeException e) {
+                    throw CouchbaseError.toSQLException(Exceptions.unwrap(e));
+                }
+                return new ExecutionResult(true, null, 1);
+        }
+        return new ExecutionResult(false);
+    }
+
+    /**
+     * @return query timeout of the statement or null if it is not set
+     */
+    @Nullable
+    private static Duration getTimeout(@NotNull CouchbaseBaseStatement owner) throws SQLException {
+        int seconds = owner.getQueryTimeout();
+        return seconds > 0 ? Duration.ofSeconds(seconds) : null;
+    }
+
+    /**
+     * Bounds the whole lookup by the timeout: a multi-get may take longer than any of its gets.
+     */
+    private static <T> Flux<T> withDeadline(@NotNull Flux<T> rows, @Nullable Duration timeout) {
+        if (timeout == null) {
+            return rows;
+        }
+        return Flux.defer(() -> {
+            Mono<Long> deadline = Mono.delay(timeout).cache();
+            return rows.timeout(deadline, row -> deadline);
+        });
+    }
+
+    /**
+     * Fetches documents concurrently, at most {@code kv.multiget.parallelism} at a time.
+     * Missing documents are skipped as the query service does.
+     */
+    private Flux<JsonObject> lookup(@NotNull Collection collection, @NotNull List<String> ids,
+                                    @NotNull Properties properties, @Nullable Duration timeout) {
+        ReactiveCollection reactive = collection.reactive();
+        GetOptions options = GetOptions.getOptions();
+        if (timeout != null) {
+            options.timeout(timeout);
+        }
+        if (ids.size() == 1) {
+            return get(reactive, ids.get(0), options).flux();
+        }
+        int parallelism = Math.max(1, getIntProperty(properties, KV_MULTIGET_PARALLELISM, KV_MULTIGET_PARALLELISM_DEFAULT));
+        Flux<String> keys = Flux.fromIterable(ids);
+        return getEnumProperty(properties, KV_MULTIGET_ORDER, KV_MULTIGET_ORDER_DEFAULT) == MultiGetOrder.COMPLETION
+                ? keys.flatMap(id -> get(reactive, id, options), parallelism)
+                : keys.flatMapSequential(id -> get(reactive, id, options), parallelism);
+    }
+
+    private Mono<JsonObject> get(@NotNull ReactiveCollection collection, @NotNull String id,
+                                 @NotNull GetOptions options) {
+        return collection.get(id, options)
+                .map(this::toRow)
+                .onErrorResume(DocumentNotFoundException.class, e -> Mono.empty());
+    }
+
+    /**
+     * @return keys of a single-key or multi-key lookup or null if any of them is not a string
+     */
+    @Nullable
+    private static List<String> toKeys(@Nullable Object key) {
+        if (key instanceof String) {
+            return Collections.singletonList((String) key);
+        }
+        List<?> keys;
+        if (key instanceof List<?>) {
+            keys = (List<?>) key;
+        } else if (key instanceof Object[]) {
+            keys = Arrays.asList((Object[]) key);
+        } else if (key instanceof JsonArray) {
+            keys = ((JsonArray) key).toList();
+        } else {
+            return null;
+        }
+        List<String> result = new ArrayList<>(keys.size());
+        for (Object element : keys) {
+            if (!(element instanceof String)) {
+                return null;
+            }
+            result.add((String) element);
+        }
+        return result;
+    }
+
+    private Collection getCollection(@NotNull CouchbaseConnection connection) {
+        Bucket bucket = connection.getCluster().bucket(statement.bucket);
+        if (statement.scope == null) {
+            return bucket.defaultCollection();
+        }
+        return bucket.scope(statement.scope).collection(statement.collection);
+    }
+
+    private JsonObject toRow(@NotNull GetResult result) {
+        Object document = decode(result);
+        if (statement.wrapperName != null) {
+            return JsonObject.create().put(statement.wrapperName, document);
+        }
+        return document instanceof JsonObject ? (JsonObject) document : JsonObject.create();
+    }
+
+    static Object decode(@NotNull GetResult result) {
+        byte[] content = result.contentAsBytes();
+        for (byte b : content) {
+            if (b == '{') {
+                return JsonObject.fromJson(content);
+            }
+            if (b == '[') {
+                return JsonArray.fromJson(content);
+            }
+            if (!Character.isWhitespace(b)) {
+                break;
+            }
+        }
+        return result.contentAs(Object.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private static Object toContent(@Nullable Object value) {
+        if (value instanceof Map<?, ?>) {
+            return JsonObject.from((Map<String, ?>) value);
+        }
+        if (value instanceof List<?>) {
+            return JsonArray.from((List<?>) value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,182 @@
+package com.intellij.executor;
+
+import com.intellij.EscapingUtil;
+import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+import static java.util.regex.Pattern.DOTALL;
+
+/**
+ * Single-keyspace statement addressing documents by key, which may be served by the key-value service
+ * instead of the query service:
+ * <pre>
+ * SELECT * | alias.* FROM keyspace [[AS] alias] USE KEYS key
+ * SELECT * | alias.* FROM keyspace [[AS] alias] WHERE META([alias]).id = key
+ * DELETE FROM keyspace [[AS] alias] USE KEYS key
+ * UPSERT INTO keyspace (KEY, VALUE) VALUES (key, value)
+ * </pre>
+ * where {@code keyspace ::= [namespace:]bucket[.scope.collection]} and key and value are positional parameters
+ * ({@code ?} or {@code $n}) or string literals. Lookups also accept an array of keys.
+ */
+class KeyValueStatement {
+    @Language("regexp") private static final String ALIAS = "(?!(?:USE|WHERE)\\b)(?:" + CustomDdlExecutor.IDENTIFIER + ")";
+    @Language("regexp") private static final String KEYSPACE = "(?:(?<namespace>[a-zA-Z]+):)?(?<bucket>" +
+            CustomDdlExecutor.IDENTIFIER + ")(?:\\.(?<scope>" + CustomDdlExecutor.IDENTIFIER + ")\\.(?<collection>" +
+            CustomDdlExecutor.IDENTIFIER + "))?";
+    @Language("regexp") private static final String STRING = "\"[^\"\\\\]*\"|'[^'\\\\]*'";
+    @Language("regexp") private static final String STRING_ARRAY = "\\[\\s*(?:(?:" + STRING + ")(?:\\s*,\\s*(?:" + STRING + "))*)?\\s*]";
+    @Language("regexp") private static final String EXPRESSION = "\\?|\\$\\d+|" + STRING + "|" + STRING_ARRAY;
+    @Language("regexp") private static final String FROM = "\\s+FROM\\s+" + KEYSPACE +
+            "(?:\\s+(?:AS\\s+)?(?<alias>" + ALIAS + "))?\\s+";
+    @Language("regexp") private static final String END = "\\s*;?\\s*";
+
+    private static final Pattern SELECT_USE_KEYS = Pattern.compile(
+            "\\s*SELECT\\s+(?:\\*|(?<projection>" + ALIAS + ")\\.\\*)" + FROM +
+                    "USE\\s+KEYS\\s+(?<key>" + EXPRESSION + ")" + END, CASE_INSENSITIVE | DOTALL);
+    private static final Pattern SELECT_META_ID = Pattern.compile(
+            "\\s*SELECT\\s+(?:\\*|(?<projection>" + ALIAS + ")\\.\\*)" + FROM +
+                    "WHERE\\s+META\\(\\s*(?<meta>" + ALIAS + ")?\\s*\\)\\.id\\s*=\\s*(?<key>" + EXPRESSION + ")" + END,
+            CASE_INSENSITIVE | DOTALL);
+    private static final Pattern DELETE_USE_KEYS = Pattern.compile(
+            "\\s*DELETE" + FROM + "USE\\s+KEYS\\s+(?<key>" + EXPRESSION + ")" + END, CASE_INSENSITIVE | DOTALL);
+    private static final Pattern UPSERT_VALUES = Pattern.compile(
+            "\\s*UPSERT\\s+INTO\\s+" + KEYSPACE + "\\s*\\(\\s*KEY\\s*,\\s*VALUE\\s*\\)\\s*VALUES\\s*\\(\\s*" +
+                    "(?<key>" + EXPRESSION + ")\\s*,\\s*(?<value>" + EXPRESSION + ")\\s*\\)" + END,
+            CASE_INSENSITIVE | DOTALL);
+
+    enum Kind {
+        GET, REMOVE, UPSERT
+    }
+
+    final Kind kind;
+    final String bucket;
+    final String scope;
+    final String collection;
+    /**
+     * Name of the field the document is wrapped in for {@code SELECT *}, null for {@code SELECT alias.*}.
+     */
+    final String wrapperName;
+    final Expression key;
+    final Expression value;
+
+    private KeyValueStatement(Kind kind, String bucket, String scope, String collection, String wrapperName,
+                              Expression key, Expression value) {
+        this.kind = kind;
+        this.bucket = bucket;
+        this.scope = scope;
+        this.collection = collection;
+        this.wrapperName = wrapperName;
+        this.key = key;
+        this.value = value;
+    }
+
+    @Nullable
+    static KeyValueStatement parse(@NotNull String sql) {
+        Matcher matcher;
+        if ((matcher = SELECT_USE_KEYS.matcher(sql)).matches()) {
+            return createGet(matcher, null);
+        }
+        if ((matcher = SELECT_META_ID.matcher(sql)).matches()) {
+            return createGet(matcher, matcher.group("meta"));
+        }
+        if ((matcher = DELETE_USE_KEYS.matcher(sql)).matches()) {
+            return create(Kind.REMOVE, matcher, null, new Expression(matcher.group("key"), 0), null);
+        }
+        if ((matcher = UPSERT_VALUES.matcher(sql)).matches()) {
+            Expression key = new Expression(matcher.group("key"), 0);
+            Expression value = new Expression(matcher.group("value"), key.isPlaceholder() ? 1 : 0);
+            return create(Kind.UPSERT, matcher, null, key, value);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static KeyValueStatement createGet(@NotNull Matcher matcher, @Nullable String metaAlias) {
+        String alias = alias(matcher);
+        String projection = EscapingUtil.stripBackquotes(matcher.group("projection"));
+        if (projection != null && !projection.equals(alias)) {
+            return null;
+        }
+        if (metaAlias != null && !EscapingUtil.stripBackquotes(metaAlias).equals(alias)) {
+            return null;
+        }
+        return create(Kind.GET, matcher, projection == null ? alias : null,
+                new Expression(matcher.group("key"), 0), null);
+    }
+
+    @Nullable
+    private static KeyValueStatement create(@NotNull Kind kind, @NotNull Matcher matcher, @Nullable String wrapperName,
+                                            @NotNull Expression key, @Nullable Expression value) {
+        String namespace = matcher.group("namespace");
+        if (namespace != null && !"default".equals(namespace)) {
+            return null;
+        }
+        return new KeyValueStatement(kind,
+                EscapingUtil.stripBackquotes(matcher.group("bucket")),
+                EscapingUtil.stripBackquotes(matcher.group("scope")),
+                EscapingUtil.stripBackquotes(matcher.group("collection")),
+                wrapperName, key, value);
+    }
+
+    /**
+     * @return explicit alias or the implicit one: the collection name or the bucket name
+     */
+    private static String alias(@NotNull Matcher matcher) {
+        String alias = matcher.group("alias");
+        if (alias == null) {
+            alias = matcher.group("collection");
+        }
+        if (alias == null) {
+            alias = matcher.group("bucket");
+        }
+        return EscapingUtil.stripBackquotes(alias);
+    }
+
+    static class Expression {
+        private static final Pattern ARRAY_ELEMENT = Pattern.compile(STRING);
+
+        private final String text;
+        private final int placeholderIndex;
+
+        Expression(@NotNull String text, int placeholderIndex) {
+            this.text = text;
+            this.placeholderIndex = placeholderIndex;
+        }
+
+        boolean isPlaceholder() {
+            return "?".equals(text);
+        }
+
+        /**
+         * @return value of a string literal, a list of strings for an array literal or value of the bound parameter
+         */
+        @Nullable
+        Object evaluate(@NotNull Object[] parameters) {
+            char first = text.charAt(0);
+            if (first == '"' || first == '\'') {
+                return unquote(text);
+            }
+            if (first == '[') {
+                List<String> elements = new ArrayList<>();
+                Matcher matcher = ARRAY_ELEMENT.matcher(text);
+                while (matcher.find()) {
+                    elements.add(unquote(matcher.group()));
+                }
+                return elements;
+            }
+            int index = first == '$' ? Integer.parseInt(text.substring(1)) - 1 : placeholderIndex;
+            return index >= 0 && index < parameters.length ? parameters[index] : null;
+        }
+
+        private static String unquote(@NotNull String literal) {
+            return literal.substring(1, literal.length() - 1);
+        }
+    }
+}
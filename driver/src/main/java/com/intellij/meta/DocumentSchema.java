@@ -0,0 +1,271 @@
+package com.intellij.meta;
+
+import com.couchbase.client.core.deps.com.fasterxml.jackson.core.JsonFactory;
+import com.couchbase.client.core.deps.com.fasterxml.jackson.core.JsonParser;
+import com.couchbase.client.core.deps.com.fasterxml.jackson.core.JsonToken;
+import com.couchbase.client.core.error.DecodingFailureException;
+import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.json.JsonObject;
+import com.intellij.types.ColumnTypeHelper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static com.intellij.EscapingUtil.escapeChars;
+
+/**
+ * Schema of sampled documents built from their raw JSON with a streaming parser, without materializing documents.
+ * Field paths are interned in a trie. Types seen at a path are merged along {@link Type#join}, and every path
+ * counts the documents it occurs in.
+ */
+public class DocumentSchema {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String INFER_DOCS = "#docs";
+
+    private final Node root = new Node(null);
+    private int documentCount;
+    private int stableCount;
+
+    /**
+     * @return true if the document added a path or widened the type of a path
+     */
+    public boolean add(@NotNull byte[] json) {
+        boolean changed;
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DecodingFailureException("Sampled document is not a JSON object");
+            }
+            changed = addFields(parser, root);
+        } catch (IOException e) {
+            throw new DecodingFailureException("Malformed sampled document", e);
+        }
+        documentCount++;
+        stableCount = changed ? 0 : stableCount + 1;
+        return changed;
+    }
+
+    /**
+     * Merges the result of {@code INFER}: flavors with {@code #docs} and {@code properties}, where every property
+     * has {@code #docs}, a {@code type} name or an array of them and, for objects, nested {@code properties}.
+     * Numbers are {@code numeric} since {@code INFER} does not tell integers from floating point numbers.
+     */
+    public void addInferred(@NotNull JsonArray flavors) {
+        for (Object flavor : flavors) {
+            if (flavor instanceof JsonObject) {
+                JsonObject object = (JsonObject) flavor;
+                documentCount += getInt(object, INFER_DOCS);
+                addProperties(object.getObject("properties"), root);
+            }
+        }
+    }
+
+    private static void addProperties(@Nullable JsonObject properties, @NotNull Node parent) {
+        if (properties == null) {
+            return;
+        }
+        for (String name : properties.getNames()) {
+            Object value = properties.get(name);
+            if (!(value instanceof JsonObject)) {
+                continue;
+            }
+            JsonObject property = (JsonObject) value;
+            Node node = parent.child(name);
+            node.count += getInt(property, INFER_DOCS);
+            Object type = property.get("type");
+            if (type instanceof JsonArray) {
+                for (Object item : (JsonArray) type) {
+                    node.type = node.type.join(inferredType(String.valueOf(item)));
+                }
+            } else if (type != null) {
+                node.type = node.type.join(inferredType(type.toString()));
+            }
+            addProperties(property.getObject("properties"), node);
+        }
+    }
+
+    @NotNull
+    private static Type inferredType(@NotNull String type) {
+        switch (type) {
+            case "string":
+                return Type.STRING;
+            case "number":
+                return Type.NUMERIC;
+            case "boolean":
+                return Type.BOOLEAN;
+            case "object":
+                return Type.OBJECT;
+            case "array":
+                return Type.ARRAY;
+            case "null":
+            case "missing":
+                return Type.NULL;
+            default:
+                return Type.JSON;
+        }
+    }
+
+    private static int getInt(@NotNull JsonObject object, @NotNull String name) {
+        Object value = object.get(name);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    private static boolean addFields(@NotNull JsonParser parser, @NotNull Node parent) throws IOException {
+        boolean changed = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            Node node = parent.children.get(name);
+            if (node == null) {
+                node = parent.child(name);
+                changed = true;
+            }
+            node.count++;
+            JsonToken token = parser.nextToken();
+            Type type = node.type.join(typeOf(parser, token));
+            if (type != node.type) {
+                node.type = type;
+                changed = true;
+            }
+            if (token == JsonToken.START_OBJECT) {
+                changed |= addFields(parser, node);
+            } else if (token == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            }
+        }
+        return changed;
+    }
+
+    @NotNull
+    private static Type typeOf(@NotNull JsonParser parser, @NotNull JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                return Type.OBJECT;
+            case START_ARRAY:
+                return Type.ARRAY;
+            case VALUE_STRING:
+                return Type.STRING;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return Type.BOOLEAN;
+            case VALUE_NUMBER_FLOAT:
+                return Type.DOUBLE;
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        return Type.INTEGER;
+                    case LONG:
+                        return Type.LONG;
+                    default:
+                        return Type.NUMERIC;
+                }
+            case VALUE_NULL:
+                return Type.NULL;
+            default:
+                return Type.JSON;
+        }
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * @return number of last documents which did not change the schema
+     */
+    public int getStableCount() {
+        return stableCount;
+    }
+
+    /**
+     * @return columns in the order their paths were discovered, parents before children
+     */
+    @NotNull
+    public List<ColumnInfo> getColumns() {
+        List<ColumnInfo> columns = new ArrayList<>();
+        root.forEachChild(node -> columns.add(new ColumnInfo(node.path,
+                ColumnTypeHelper.getJavaType(node.type.typeName), node.type.typeName)));
+        return columns;
+    }
+
+    /**
+     * @return number of documents having each path
+     */
+    @NotNull
+    public Map<String, Integer> getFrequencies() {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        root.forEachChild(node -> frequencies.put(node.path, node.count));
+        return frequencies;
+    }
+
+    /**
+     * Lattice of column types: {@code null} is below every type, {@code integer < long < numeric} and
+     * {@code double < numeric}, any other mix of types is {@code json}.
+     */
+    public enum Type {
+        NULL("null"), BOOLEAN("boolean"), STRING("string"), INTEGER("integer"), LONG("long"), DOUBLE("double"),
+        NUMERIC("numeric"), OBJECT("object"), ARRAY("array"), JSON("json");
+
+        private final String typeName;
+
+        Type(@NotNull String typeName) {
+            this.typeName = typeName;
+        }
+
+        @NotNull
+        public String getTypeName() {
+            return typeName;
+        }
+
+        @NotNull
+        public Type join(@NotNull Type other) {
+            if (this == other || other == NULL) {
+                return this;
+            }
+            if (this == NULL) {
+                return other;
+            }
+            if (isNumber() && other.isNumber()) {
+                if (this == NUMERIC || other == NUMERIC || this == DOUBLE || other == DOUBLE) {
+                    return NUMERIC;
+                }
+                return LONG;
+            }
+            return JSON;
+        }
+
+        private boolean isNumber() {
+            return this == INTEGER || this == LONG || this == DOUBLE || this == NUMERIC;
+        }
+    }
+
+    private static final class Node {
+        private final String path;
+        private final Map<String, Node> children = new LinkedHashMap<>();
+        private Type type = Type.NULL;
+        private int count;
+
+        Node(@Nullable String path) {
+            this.path = path;
+        }
+
+        @NotNull
+        Node child(@NotNull String name) {
+            return children.computeIfAbsent(name, key -> {
+                String escaped = escapeChars(key, '\\', '.');
+                return new Node(path != null ? path + "." + escaped : escaped);
+            });
+        }
+
+        void forEachChild(@NotNull Consumer<Node> action) {
+            for (Node child : children.values()) {
+                action.accept(child);
+                child.forEachChild(action);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.intellij.metrics;
+
+import com.intellij.CouchbaseQueryMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of statements executed on a connection, available with {@code connection.unwrap(ConnectionMetrics.class)}.
+ * Times are recorded in microseconds.
+ */
+public class ConnectionMetrics {
+    private final Histogram elapsedMicros = new Histogram();
+    private final Histogram executionMicros = new Histogram();
+    private final Histogram decodeMicros = new Histogram();
+    private final Histogram resultCount = new Histogram();
+    private final Histogram resultSize = new Histogram();
+    private final LongAdder mutationCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+
+    public void record(@NotNull CouchbaseQueryMetrics metrics) {
+        if (!metrics.isComplete()) {
+            return;
+        }
+        elapsedMicros.record(metrics.getElapsedTime().toNanos() / 1000);
+        executionMicros.record(metrics.getExecutionTime().toNanos() / 1000);
+        decodeMicros.record(metrics.getDecodeTime().toNanos() / 1000);
+        resultCount.record(metrics.getResultCount());
+        resultSize.record(metrics.getResultSize());
+        mutationCount.add(metrics.getMutationCount());
+        if (metrics.getErrorCount() > 0) {
+            failureCount.increment();
+        }
+    }
+
+    /**
+     * Counts a statement which failed before the query service reported its metrics.
+     */
+    public void recordFailure() {
+        failureCount.increment();
+    }
+
+    public Histogram getElapsedMicros() {
+        return elapsedMicros;
+    }
+
+    public Histogram getExecutionMicros() {
+        return executionMicros;
+    }
+
+    public Histogram getDecodeMicros() {
+        return decodeMicros;
+    }
+
+    public Histogram getResultCount() {
+        return resultCount;
+    }
+
+    public Histogram getResultSize() {
+        return resultSize;
+    }
+
+    public long getMutationCount() {
+        return mutationCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "elapsed: " + elapsedMicros + "\nexecution: " + executionMicros + "\ndecode: " + decodeMicros +
+                "\nresult count: " + resultCount + "\nresult size: " + resultSize +
+                "\nmutations: " + getMutationCount() + ", failures: " + getFailureCount();
+    }
+}
@@ -0,0 +1,178 @@
+package com.intellij.metrics;
+
+import com.intellij.CouchbaseError;
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Driver-wide metrics, always collected and exported as JMX MBeans with {@code metrics.exporter=jmx}.
+ */
+public final class DriverMetrics implements DriverMetricsMXBean {
+    private static final Logger LOG = Logger.getLogger(DriverMetrics.class.getName());
+    private static final String DOMAIN = "com.intellij.couchbase";
+    private static final DriverMetrics INSTANCE = new DriverMetrics();
+
+    private final LongAdder openConnections = new LongAdder();
+    private final LongAdder activeStatements = new LongAdder();
+    private final Map<StatementKind, StatementKindMetrics> statements = new EnumMap<>(StatementKind.class);
+    private final RateMeter queries = new RateMeter();
+    private final LongAdder rowsDecoded = new LongAdder();
+    private final LongAdder bytesDecoded = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> sdkOperations = new ConcurrentHashMap<>();
+    private final AtomicBoolean isRegistered = new AtomicBoolean();
+
+    private DriverMetrics() {
+        for (StatementKind kind : StatementKind.values()) {
+            statements.put(kind, new StatementKindMetrics());
+        }
+    }
+
+    @NotNull
+    public static DriverMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void connectionOpened() {
+        openConnections.increment();
+    }
+
+    public void connectionClosed() {
+        openConnections.decrement();
+    }
+
+    public void statementOpened() {
+        activeStatements.increment();
+    }
+
+    public void statementClosed() {
+        activeStatements.decrement();
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the statement started
+     */
+    public void recordExecution(@NotNull StatementKind kind, long startNanos) {
+        statements.get(kind).record(System.nanoTime() - startNanos);
+        if (kind != StatementKind.METADATA) {
+            queries.mark();
+        }
+    }
+
+    public void recordDecodedRow(long bytes) {
+        rowsDecoded.increment();
+        bytesDecoded.add(bytes);
+    }
+
+    public void recordError(@NotNull Throwable t) {
+        for (String code : CouchbaseError.getErrorCodes(t)) {
+            errors.computeIfAbsent(code, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * @return histogram of SDK request latencies in microseconds for a service and an operation
+     */
+    @NotNull
+    Histogram getSdkOperation(@NotNull String key) {
+        return sdkOperations.computeIfAbsent(key, k -> new Histogram());
+    }
+
+    @NotNull
+    public StatementKindMetrics getStatementMetrics(@NotNull StatementKind kind) {
+        return statements.get(kind);
+    }
+
+    /**
+     * Registers the MBeans with the platform MBean server, once per class loader.
+     */
+    public void registerMBeans() {
+        if (!isRegistered.compareAndSet(false, true)) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, new ObjectName(DOMAIN + ":type=Driver"), this);
+            for (Map.Entry<StatementKind, StatementKindMetrics> entry : statements.entrySet()) {
+                register(server, new ObjectName(DOMAIN + ":type=Statements,kind=" + entry.getKey()), entry.getValue());
+            }
+        } catch (JMException e) {
+            LOG.log(Level.WARNING, "Cannot register driver MBeans", e);
+        }
+    }
+
+    private static void register(@NotNull MBeanServer server, @NotNull ObjectName name, @NotNull Object bean)
+            throws JMException {
+        // another copy of the driver loaded by a different class loader may have registered it already
+        if (!server.isRegistered(name)) {
+            server.registerMBean(bean, name);
+        }
+    }
+
+    @Override
+    public long getOpenConnections() {
+        return openConnections.sum();
+    }
+
+    @Override
+    public long getActiveStatements() {
+        return activeStatements.sum();
+    }
+
+    @Override
+    public double getQueriesPerSecond() {
+        return queries.getRate();
+    }
+
+    @Override
+    public long getRowsDecoded() {
+        return rowsDecoded.sum();
+    }
+
+    @Override
+    public long getBytesDecoded() {
+        return bytesDecoded.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorsByCode() {
+        Map<String, Long> result = new TreeMap<>();
+        errors.forEach((code, count) -> result.put(code, count.sum()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getSdkOperationCounts() {
+        return sdkOperations(Histogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getSdkOperationP50Micros() {
+        return sdkOperations(histogram -> histogram.getPercentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getSdkOperationP99Micros() {
+        return sdkOperations(histogram -> histogram.getPercentile(99));
+    }
+
+    private Map<String, Long> sdkOperations(@NotNull ToLongFunction<Histogram> value) {
+        Map<String, Long> result = new TreeMap<>();
+        sdkOperations.forEach((key, histogram) -> result.put(key, value.applyAsLong(histogram)));
+        return result;
+    }
+}
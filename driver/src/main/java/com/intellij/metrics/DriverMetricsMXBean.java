@@ -0,0 +1,33 @@
+package com.intellij.metrics;
+
+import java.util.Map;
+
+/**
+ * Driver-wide counters, registered as {@code com.intellij.couchbase:type=Driver}.
+ */
+public interface DriverMetricsMXBean {
+    long getOpenConnections();
+
+    long getActiveStatements();
+
+    double getQueriesPerSecond();
+
+    long getRowsDecoded();
+
+    long getBytesDecoded();
+
+    /**
+     * @return number of failed statements by query service error code, {@code TIMEOUT}, {@code CANCELLED}
+     * or {@code UNKNOWN}
+     */
+    Map<String, Long> getErrorsByCode();
+
+    /**
+     * @return number of SDK requests by service and operation, reported through the SDK meter
+     */
+    Map<String, Long> getSdkOperationCounts();
+
+    Map<String, Long> getSdkOperationP50Micros();
+
+    Map<String, Long> getSdkOperationP99Micros();
+}
@@ -0,0 +1,99 @@
+package com.intellij.metrics;
+
+import com.couchbase.client.java.query.QueryMetaData;
+import com.couchbase.client.java.query.QueryMetrics;
+import com.intellij.CouchbaseQueryMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+public final class QueryMetricsSnapshot implements CouchbaseQueryMetrics {
+    public static final QueryMetricsSnapshot EMPTY = new QueryMetricsSnapshot(null, null, 0);
+
+    private final String clientContextId;
+    private final QueryMetrics metrics;
+    private final long decodeNanos;
+
+    private QueryMetricsSnapshot(@Nullable String clientContextId, @Nullable QueryMetrics metrics, long decodeNanos) {
+        this.clientContextId = clientContextId;
+        this.metrics = metrics;
+        this.decodeNanos = decodeNanos;
+    }
+
+    /**
+     * @param metaData metadata of a completed query or null if it is not available yet
+     */
+    @NotNull
+    public static QueryMetricsSnapshot of(@Nullable QueryMetaData metaData, long decodeNanos) {
+        if (metaData == null) {
+            return decodeNanos == 0 ? EMPTY : new QueryMetricsSnapshot(null, null, decodeNanos);
+        }
+        return new QueryMetricsSnapshot(metaData.clientContextId(),
+                metaData.metrics().orElse(QueryMetrics.EMPTY_METRICS), decodeNanos);
+    }
+
+    @Override
+    public boolean isComplete() {
+        return metrics != null;
+    }
+
+    @Override
+    public @Nullable String getClientContextId() {
+        return clientContextId;
+    }
+
+    @Override
+    public @NotNull Duration getElapsedTime() {
+        return metrics == null ? Duration.ZERO : metrics.elapsedTime();
+    }
+
+    @Override
+    public @NotNull Duration getExecutionTime() {
+        return metrics == null ? Duration.ZERO : metrics.executionTime();
+    }
+
+    @Override
+    public long getResultCount() {
+        return metrics == null ? 0 : metrics.resultCount();
+    }
+
+    @Override
+    public long getResultSize() {
+        return metrics == null ? 0 : metrics.resultSize();
+    }
+
+    @Override
+    public long getSortCount() {
+        return metrics == null ? 0 : metrics.sortCount();
+    }
+
+    @Override
+    public long getMutationCount() {
+        return metrics == null ? 0 : metrics.mutationCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return metrics == null ? 0 : metrics.errorCount();
+    }
+
+    @Override
+    public long getWarningCount() {
+        return metrics == null ? 0 : metrics.warningCount();
+    }
+
+    @Override
+    public @NotNull Duration getDecodeTime() {
+        return Duration.ofNanos(decodeNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "elapsed=" + getElapsedTime().toMillis() + "ms, execution=" + getExecutionTime().toMillis() +
+                "ms, decode=" + getDecodeTime().toMillis() + "ms, resultCount=" + getResultCount() +
+                ", resultSize=" + getResultSize() + ", sortCount=" + getSortCount() +
+                ", mutationCount=" + getMutationCount() + ", errorCount=" + getErrorCount() +
+                ", warningCount=" + getWarningCount();
+    }
+}
@@ -0,0 +1,63 @@
+package com.intellij.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate of events over the last {@value #WINDOW_SECONDS} complete seconds.
+ */
+public class RateMeter {
+    private static final int WINDOW_SECONDS = 60;
+
+    /**
+     * Ring of per-second counters. A slot is rotated by replacing it as a whole, so an increment
+     * never lands in a counter that is being reset.
+     */
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(WINDOW_SECONDS + 1);
+
+    public void mark() {
+        mark(System.currentTimeMillis() / 1000);
+    }
+
+    void mark(long second) {
+        int index = (int) (second % slots.length());
+        Slot slot = slots.get(index);
+        while (slot == null || slot.second != second) {
+            if (slot != null && slot.second > second) {
+                // the second has already left the window
+                return;
+            }
+            Slot fresh = new Slot(second);
+            if (slots.compareAndSet(index, slot, fresh)) {
+                slot = fresh;
+            } else {
+                slot = slots.get(index);
+            }
+        }
+        slot.count.increment();
+    }
+
+    public double getRate() {
+        return getRate(System.currentTimeMillis() / 1000);
+    }
+
+    double getRate(long now) {
+        long total = 0;
+        for (int index = 0; index < slots.length(); index++) {
+            Slot slot = slots.get(index);
+            if (slot != null && slot.second < now && slot.second >= now - WINDOW_SECONDS) {
+                total += slot.count.sum();
+            }
+        }
+        return (double) total / WINDOW_SECONDS;
+    }
+
+    private static final class Slot {
+        private final long second;
+        private final LongAdder count = new LongAdder();
+
+        Slot(long second) {
+            this.second = second;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.intellij.metrics;
+
+import com.couchbase.client.core.cnc.Counter;
+import com.couchbase.client.core.cnc.Meter;
+import com.couchbase.client.core.cnc.ValueRecorder;
+import com.couchbase.client.core.cnc.metrics.NoopMeter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Bridges request latencies the SDK reports through {@link Meter} to {@link DriverMetrics}.
+ */
+public class SdkMeter implements Meter {
+    private static final String SERVICE_TAG = "db.couchbase.service";
+    private static final String OPERATION_TAG = "db.operation";
+
+    private final DriverMetrics metrics;
+
+    public SdkMeter(@NotNull DriverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Counter counter(String name, Map<String, String> tags) {
+        // the SDK reports requests through value recorders only
+        return NoopMeter.INSTANCE.counter(name, tags);
+    }
+
+    /**
+     * Keys latencies by {@code service:operation}, e.g. {@code query:query} or {@code kv:get}.
+     */
+    @Override
+    public ValueRecorder valueRecorder(String name, Map<String, String> tags) {
+        String service = tags.get(SERVICE_TAG);
+        String operation = tags.get(OPERATION_TAG);
+        String key = service == null ? name : operation == null ? service : service + ":" + operation;
+        return metrics.getSdkOperation(key)::record;
+    }
+}
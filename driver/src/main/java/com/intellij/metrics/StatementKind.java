@@ -0,0 +1,27 @@
+package com.intellij.metrics;
+
+import java.util.Locale;
+
+public enum StatementKind {
+    /**
+     * Statements executed by the query service.
+     */
+    N1QL,
+    /**
+     * Extended statements executed by the driver, see {@link com.intellij.executor.CouchbaseCustomStatementExecutor}.
+     */
+    DDL,
+    /**
+     * Statements served by the key-value service, see {@link com.intellij.executor.KeyValueExecutor}.
+     */
+    KEY_VALUE,
+    /**
+     * {@link java.sql.DatabaseMetaData} calls querying the cluster.
+     */
+    METADATA;
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,41 @@
+package com.intellij.metrics;
+
+public class StatementKindMetrics implements StatementKindMetricsMXBean {
+    private final Histogram latencyMicros = new Histogram();
+    private final RateMeter rate = new RateMeter();
+
+    void record(long nanos) {
+        latencyMicros.record(nanos / 1000);
+        rate.mark();
+    }
+
+    @Override
+    public long getCount() {
+        return latencyMicros.getCount();
+    }
+
+    @Override
+    public double getCountPerSecond() {
+        return rate.getRate();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencyMicros.getMean();
+    }
+
+    @Override
+    public long getP50Micros() {
+        return latencyMicros.getPercentile(50);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return latencyMicros.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return latencyMicros.getMax();
+    }
+}
@@ -0,0 +1,18 @@
+package com.intellij.metrics;
+
+/**
+ * Latency of statements of one {@link StatementKind}, registered as {@code com.intellij.couchbase:type=Statements,kind=<kind>}.
+ */
+public interface StatementKindMetricsMXBean {
+    long getCount();
+
+    double getCountPerSecond();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getMaxMicros();
+}
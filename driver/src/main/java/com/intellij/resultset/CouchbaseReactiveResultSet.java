@@ -1,11 +1,23 @@
 package com.intellij.resultset;
 
+import com.couchbase.client.java.json.JsonArray;
 import com.couchbase.client.java.json.JsonObject;
 import com.couchbase.client.java.query.QueryMetaData;
 import com.couchbase.client.java.query.QueryMetrics;
+import com.couchbase.client.java.query.QueryWarning;
 import com.couchbase.client.java.query.ReactiveQueryResult;
+import com.intellij.BlockingUtil;
 import com.intellij.CouchbaseBaseStatement;
+import com.intellij.CouchbaseError;
+import com.intellij.CouchbaseFetchMetrics;
+import com.intellij.CouchbaseQueryMetrics;
+import com.intellij.DriverPropertyInfoHelper.ResultSetColumns;
+import com.intellij.DriverPropertyInfoHelper.RowDecoding;
+import com.intellij.metrics.QueryMetricsSnapshot;
+import com.intellij.metrics.StatementKind;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import reactor.core.publisher.Mono;
 
 import java.io.InputStream;
 import java.io.Reader;
@@ -29,11 +41,23 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import static com.intellij.DriverPropertyInfoHelper.RESULTSET_COLUMNS;
+import static com.intellij.DriverPropertyInfoHelper.RESULTSET_COLUMNS_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.RESULTSET_DECODING;
+import static com.intellij.DriverPropertyInfoHelper.RESULTSET_DECODING_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.getEnumProperty;
 import static com.intellij.resultset.CouchbaseResultSetMetaData.createColumn;
 
 public class CouchbaseReactiveResultSet implements ResultSet {
@@ -41,25 +65,175 @@ public class CouchbaseReactiveResultSet implements ResultSet {
     private final static String RESULT_COLUMN_NAME = "result";
 
     private final Statement statement;
-    private final ResultSetRows<JsonObject> rows;
-    private final QueryMetaData queryMetaData;
-    private JsonObject currentRow;
+    private final ResultSetRows<Row> rows;
+    private final CompletableFuture<QueryMetaData> queryMetaData;
+    private final Consumer<CouchbaseQueryMetrics> metricsRecorder;
+    private boolean metricsRecorded;
+    /**
+     * Top-level fields of the projection, null if every row is exposed as a single {@code result} column.
+     */
+    private final List<String> columns;
+    private final List<String> columnTypes;
+    private final Set<String> columnNames;
+    private boolean columnsCollected;
+    private Row pendingRow;
+    private Row currentRow;
     private Map<String, Object> currentRowAsMap;
+    private boolean wasNull;
+    private volatile long accessNanos;
     private CouchbaseResultSetMetaData meta;
     private boolean isClosed = false;
 
     public CouchbaseReactiveResultSet(@NotNull CouchbaseBaseStatement statement,
                                       @NotNull ReactiveQueryResult queryResult) {
+        this(statement, createRows(statement, queryResult), queryResult.metaData());
+    }
+
+    /**
+     * Subscribes to rows of the query with the fetch settings of the statement. The latency or the error of
+     * the execution is recorded once the rows complete.
+     */
+    @NotNull
+    public static ReactiveRows createRows(@NotNull CouchbaseBaseStatement statement,
+                                          @NotNull ReactiveQueryResult queryResult) {
+        Properties properties = statement.getProperties();
+        LongAdder decodeNanos = new LongAdder();
+        RowDecoding decoding = getEnumProperty(properties, RESULTSET_DECODING, RESULTSET_DECODING_DEFAULT);
+        return new ReactiveRows(
+                statement.recorded(statement.cancellable(ReactiveRows.rows(queryResult, decoding, decodeNanos)),
+                        StatementKind.N1QL),
+                statement.getFetchSize(), 0,
+                RowBuffer.Watermarks.get(properties).withByteBudget(statement.getFetchBytes()), decodeNanos);
+    }
+
+    /**
+     * Does not wait for rows or metadata, both are awaited only when the caller asks for them.
+     *
+     * @param metaData completes with query metadata after all rows are emitted,
+     *                 or empty for rows not produced by the query service
+     */
+    public CouchbaseReactiveResultSet(@NotNull CouchbaseBaseStatement statement,
+                                      @NotNull ResultSetRows<Row> rows,
+                                      @NotNull Mono<QueryMetaData> metaData) {
         this.statement = statement;
-        rows = new ReactiveRows(queryResult, statement.getFetchSize());
-        queryMetaData = rows.hasNext() ? null
-                : queryResult.metaData().block();
+        this.rows = rows;
+        queryMetaData = metaData.toFuture();
+        metricsRecorder = statement.metricsRecorder();
+        if (getEnumProperty(statement.getProperties(), RESULTSET_COLUMNS, RESULTSET_COLUMNS_DEFAULT)
+                == ResultSetColumns.PROJECTION) {
+            columns = new ArrayList<>();
+            columnTypes = new ArrayList<>();
+            columnNames = new HashSet<>();
+        } else {
+            columns = null;
+            columnTypes = null;
+            columnNames = null;
+        }
+    }
+
+    /**
+     * @return future completed with query metadata once all rows are received,
+     * or with null for rows not produced by the query service
+     */
+    @NotNull
+    public CompletableFuture<QueryMetaData> getQueryMetaData() {
+        return queryMetaData.copy();
+    }
+
+    /**
+     * @return metrics of the query, decode time includes lazy decoding of fields accessed so far
+     */
+    @NotNull
+    public CouchbaseQueryMetrics getQueryMetrics() {
+        long decodeNanos = accessNanos + (rows instanceof ReactiveRows ? ((ReactiveRows) rows).getDecodeNanos() : 0);
+        return QueryMetricsSnapshot.of(queryMetaData.getNow(null), decodeNanos);
+    }
+
+    /**
+     * @return stalls and occupancy of the row buffer so far
+     */
+    @NotNull
+    public CouchbaseFetchMetrics getFetchMetrics() {
+        return rows instanceof ReactiveRows ? ((ReactiveRows) rows).getBuffer().getMetrics() : RowBuffer.Metrics.EMPTY;
     }
 
+    /**
+     * Publishes metrics once the consumer is done with the rows, so that they include lazy decoding of fields.
+     * Called when the rows are exhausted or the result set is closed, whichever comes first.
+     */
+    private void recordMetrics() {
+        if (metricsRecorded) {
+            return;
+        }
+        metricsRecorded = true;
+        queryMetaData.thenAccept(result -> {
+            if (result != null) {
+                metricsRecorder.accept(getQueryMetrics());
+            }
+        });
+    }
+
+    /**
+     * The query service sends the signature after the rows, so columns are taken from the first row in the order
+     * of its fields, which is the order of the projection, and from the signature only for an empty result.
+     * The SDK decodes the signature into an unordered object, so its fields are sorted by name.
+     */
+    private void collectColumns() {
+        if (columns == null || columnsCollected) {
+            return;
+        }
+        columnsCollected = true;
+        pendingRow = rows.hasNext() ? rows.next() : null;
+        if (pendingRow != null) {
+            addColumns(pendingRow);
+            return;
+        }
+        QueryMetaData metaData = BlockingUtil.await(Mono.fromFuture(queryMetaData));
+        JsonObject signature = metaData == null ? null : metaData.signature().orElse(null);
+        if (signature != null) {
+            for (String column : new TreeSet<>(signature.getNames())) {
+                if (!"*".equals(column) && columnNames.add(column)) {
+                    columns.add(column);
+                    columnTypes.add("object");
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends fields of the row missing from previous rows, so that they can be read as well.
+     */
+    private void addColumns(@NotNull Row row) {
+        for (String name : row.getNames()) {
+            if (columnNames.add(name)) {
+                columns.add(name);
+                columnTypes.add(getTypeName(row.get(name)));
+                meta = null;
+            }
+        }
+    }
+
+    private static String getTypeName(@Nullable Object value) {
+        if (value instanceof String) return "string";
+        if (value instanceof Boolean) return "boolean";
+        if (value instanceof Integer) return "integer";
+        if (value instanceof Long) return "long";
+        if (value instanceof Number) return "double";
+        if (value instanceof JsonArray) return "array";
+        return "object";
+    }
+
+    /**
+     * @return number of mutated documents if the statement has completed without a result, -1 otherwise
+     */
     public long getMutationCount() {
-        if (queryMetaData != null) {
-            QueryMetrics metrics = queryMetaData.metrics().orElse(null);
-            JsonObject signature = queryMetaData.signature().orElse(null);
+        return getMutationCount(queryMetaData.getNow(null));
+    }
+
+    public static long getMutationCount(@Nullable QueryMetaData metaData) {
+        if (metaData != null) {
+            QueryMetrics metrics = metaData.metrics().orElse(null);
+            JsonObject signature = metaData.signature().orElse(null);
             if (signature == null && metrics != null) {
                 return metrics.mutationCount();
             }
@@ -72,76 +246,150 @@ public class CouchbaseReactiveResultSet implements ResultSet {
         checkClosed();
         currentRow = null;
         currentRowAsMap = null;
-        if (rows.hasNext()) {
-            currentRow = rows.next();
-            currentRowAsMap = currentRow == null ? null : currentRow.toMap();
+        try {
+            collectColumns();
+        } catch (RuntimeException e) {
+            throw CouchbaseError.toSQLException(e);
+        }
+        if (pendingRow != null) {
+            currentRow = pendingRow;
+            pendingRow = null;
             return true;
         }
+        try {
+            if (rows.hasNext()) {
+                currentRow = rows.next();
+                if (columns != null) {
+                    addColumns(currentRow);
+                }
+                return true;
+            }
+        } catch (RuntimeException e) {
+            throw CouchbaseError.toSQLException(e);
+        }
+        recordMetrics();
         return false;
     }
 
     @Override
     public void close() {
+        recordMetrics();
         rows.close();
+        pendingRow = null;
         isClosed = true;
     }
 
     @Override
     public boolean wasNull() {
-        return false;
+        return wasNull;
     }
 
-    @Override
-    public String getString(int columnIndex) throws SQLException {
+    /**
+     * @return value of the projected field, read from the row without copying it
+     */
+    @Nullable
+    private Object getValue(int columnIndex) throws SQLException {
         checkClosed();
-        checkColumnNumber(columnIndex);
+        if (columns == null) {
+            checkColumnNumber(columnIndex);
+        } else if (columnIndex < 1 || columnIndex > columns.size()) {
+            throw new SQLException("No such column " + columnIndex);
+        }
         if (currentRow == null) throw new SQLException("Exhausted ResultSet.");
-        return String.valueOf(currentRow);
+        if (columns == null) {
+            wasNull = false;
+            return currentRow;
+        }
+        Object value = getField(columns.get(columnIndex - 1));
+        wasNull = value == null;
+        return value;
+    }
+
+    @Nullable
+    private Object getField(@NotNull String name) {
+        long start = System.nanoTime();
+        Object value = currentRow.get(name);
+        accessNanos += System.nanoTime() - start;
+        return value;
+    }
+
+    /**
+     * @return value of the only field of the row for a single-column result set or value of the column otherwise
+     */
+    @Nullable
+    private Object getScalar(int columnIndex) throws SQLException {
+        Object value = getValue(columnIndex);
+        if (columns != null) {
+            return value;
+        }
+        if (currentRow.size() != 1) {
+            throw new SQLException("No such column " + columnIndex);
+        }
+        value = getField(currentRow.getNames().iterator().next());
+        wasNull = value == null;
+        return value;
+    }
+
+    private int getColumnIndex(String columnLabel) throws SQLException {
+        checkClosed();
+        if (columns == null) {
+            checkColumnLabel(columnLabel);
+            return 1;
+        }
+        return findColumn(columnLabel);
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        Object value = getValue(columnIndex);
+        if (columns != null && value == null) {
+            return null;
+        }
+        return String.valueOf(value);
     }
 
     @Override
     public String getString(String columnLabel) throws SQLException {
-        checkClosed();
-        checkColumnLabel(columnLabel);
-        if (currentRow == null) throw new SQLException("Exhausted ResultSet.");
-        return String.valueOf(currentRow);
+        return getString(getColumnIndex(columnLabel));
     }
 
     @Override
     public Object getObject(int columnIndex) throws SQLException {
-        checkClosed();
-        checkColumnNumber(columnIndex);
-        if (currentRowAsMap != null) {
-            return currentRowAsMap;
+        Object value = getValue(columnIndex);
+        if (columns != null) {
+            return toJava(value);
+        }
+        if (currentRowAsMap == null) {
+            long start = System.nanoTime();
+            currentRowAsMap = currentRow.toMap();
+            accessNanos += System.nanoTime() - start;
         }
-        throw new SQLException("Result exhausted.");
+        return currentRowAsMap;
     }
 
     @Override
     public Object getObject(String columnLabel) throws SQLException {
-        checkClosed();
-        checkColumnLabel(columnLabel);
-        if (currentRowAsMap != null) {
-            return currentRowAsMap;
+        return getObject(getColumnIndex(columnLabel));
+    }
+
+    @Nullable
+    private static Object toJava(@Nullable Object value) {
+        if (value instanceof JsonObject) {
+            return ((JsonObject) value).toMap();
+        }
+        if (value instanceof JsonArray) {
+            return ((JsonArray) value).toList();
         }
-        throw new SQLException("Result exhausted.");
+        return value;
     }
 
     private <T extends Number> T getAsNumber(int index, Function<Number, T> getter, T defaultValue)
             throws SQLException {
-        checkClosed();
-        checkColumnNumber(index);
-        if (currentRowAsMap.size() != 1) {
-            throw new SQLException("No such column " + index);
+        Object value = getScalar(index);
+        if (value instanceof Number) {
+            return getter.apply((Number) value);
         }
-        return currentRowAsMap.values().stream().findFirst()
-                .map(v -> {
-                    if (v instanceof Number) {
-                        return getter.apply((Number) v);
-                    }
-                    return null;
-                })
-                .orElse(defaultValue);
+        return defaultValue;
     }
 
     @Override
@@ -226,44 +474,32 @@ public class CouchbaseReactiveResultSet implements ResultSet {
 
     @Override
     public byte getByte(String columnLabel) throws SQLException {
-        checkClosed();
-        checkColumnLabel(columnLabel);
-        return getByte(1);
+        return getByte(getColumnIndex(columnLabel));
     }
 
     @Override
     public short getShort(String columnLabel) throws SQLException {
-        checkClosed();
-        checkColumnLabel(columnLabel);
-        return getShort(1);
+        return getShort(getColumnIndex(columnLabel));
     }
 
     @Override
     public int getInt(String columnLabel) throws SQLException {
-        checkClosed();
-        checkColumnLabel(columnLabel);
-        return getInt(1);
+        return getInt(getColumnIndex(columnLabel));
     }
 
     @Override
     public long getLong(String columnLabel) throws SQLException {
-        checkClosed();
-        checkColumnLabel(columnLabel);
-        return getLong(1);
+        return getLong(getColumnIndex(columnLabel));
     }
 
     @Override
     public float getFloat(String columnLabel) throws SQLException {
-        checkClosed();
-        checkColumnLabel(columnLabel);
-        return getFloat(1);
+        return getFloat(getColumnIndex(columnLabel));
     }
 
     @Override
     public double getDouble(String columnLabel) throws SQLException {
-        checkClosed();
-        checkColumnLabel(columnLabel);
-        return getDouble(1);
+        return getDouble(getColumnIndex(columnLabel));
     }
 
     @Override
@@ -308,7 +544,21 @@ public class CouchbaseReactiveResultSet implements ResultSet {
 
     @Override
     public SQLWarning getWarnings() throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        checkClosed();
+        QueryMetaData metaData = queryMetaData.getNow(null);
+        if (metaData == null) {
+            return null;
+        }
+        SQLWarning result = null;
+        for (QueryWarning warning : metaData.warnings()) {
+            SQLWarning sqlWarning = new SQLWarning(warning.message(), null, warning.code());
+            if (result == null) {
+                result = sqlWarning;
+            } else {
+                result.setNextWarning(sqlWarning);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -326,8 +576,13 @@ public class CouchbaseReactiveResultSet implements ResultSet {
         return getMetaDataInternal();
     }
 
-    private CouchbaseResultSetMetaData getMetaDataInternal() {
+    private CouchbaseResultSetMetaData getMetaDataInternal() throws SQLException {
         if (meta == null) {
+            try {
+                collectColumns();
+            } catch (RuntimeException e) {
+                throw CouchbaseError.toSQLException(e);
+            }
             meta = parseMetaData();
         }
         return meta;
@@ -335,7 +590,13 @@ public class CouchbaseReactiveResultSet implements ResultSet {
 
     private CouchbaseResultSetMetaData parseMetaData() {
         List<CouchbaseResultSetMetaData.ColumnMetaData> metaData = new ArrayList<>();
-        metaData.add(createColumn(RESULT_COLUMN_NAME, "map"));
+        if (columns == null) {
+            metaData.add(createColumn(RESULT_COLUMN_NAME, "map"));
+        } else {
+            for (int i = 0; i < columns.size(); i++) {
+                metaData.add(createColumn(columns.get(i), columnTypes.get(i)));
+            }
+        }
         return new CouchbaseResultSetMetaData(metaData);
     }
 
@@ -989,11 +1250,20 @@ public class CouchbaseReactiveResultSet implements ResultSet {
 
     @Override
     public <T> T unwrap(Class<T> iface) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        if (iface == CouchbaseQueryMetrics.class) {
+            return iface.cast(getQueryMetrics());
+        }
+        if (iface == CouchbaseFetchMetrics.class) {
+            return iface.cast(getFetchMetrics());
+        }
+        throw new SQLException("ResultSet is not a wrapper for " + iface.getName());
     }
 
     @Override
-    public boolean isWrapperFor(Class<?> iface) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this) || iface == CouchbaseQueryMetrics.class || iface == CouchbaseFetchMetrics.class;
     }
 }
@@ -0,0 +1,83 @@
+package com.intellij.resultset;
+
+import com.couchbase.client.java.json.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Row decoded by the SDK as a whole.
+ */
+public class JsonObjectRow implements Row {
+    private final JsonObject object;
+    private final int byteSize;
+    /**
+     * Field names in the order of the encoded row, null if unknown.
+     */
+    private final Set<String> names;
+
+    public JsonObjectRow(@NotNull JsonObject object) {
+        this(object, 0);
+    }
+
+    public JsonObjectRow(@NotNull JsonObject object, int byteSize) {
+        this(object, byteSize, null);
+    }
+
+    private JsonObjectRow(@NotNull JsonObject object, int byteSize, @Nullable Set<String> names) {
+        this.object = object;
+        this.byteSize = byteSize;
+        this.names = names;
+    }
+
+    /**
+     * Decodes the row eagerly, keeping the size of its encoded form.
+     */
+    @NotNull
+    public static JsonObjectRow decode(@NotNull byte[] bytes) {
+        return new JsonObjectRow(JsonObject.fromJson(bytes), bytes.length);
+    }
+
+    /**
+     * Decodes the row eagerly and indexes the order of its fields, which the SDK object does not keep.
+     */
+    @NotNull
+    public static JsonObjectRow decodeOrdered(@NotNull byte[] bytes) {
+        return new JsonObjectRow(JsonObject.fromJson(bytes), bytes.length, new LazyJsonRow(bytes).getNames());
+    }
+
+    @Override
+    @NotNull
+    public Set<String> getNames() {
+        return names != null ? names : object.getNames();
+    }
+
+    @Override
+    @Nullable
+    public Object get(@NotNull String name) {
+        return object.get(name);
+    }
+
+    @Override
+    public int size() {
+        return object.size();
+    }
+
+    @Override
+    @NotNull
+    public Map<String, Object> toMap() {
+        return object.toMap();
+    }
+
+    @Override
+    public int getByteSize() {
+        return byteSize;
+    }
+
+    @Override
+    public String toString() {
+        return object.toString();
+    }
+}
@@ -0,0 +1,128 @@
+package com.intellij.resultset;
+
+import com.couchbase.client.core.deps.com.fasterxml.jackson.core.JsonFactory;
+import com.couchbase.client.core.deps.com.fasterxml.jackson.core.JsonParser;
+import com.couchbase.client.core.deps.com.fasterxml.jackson.core.JsonToken;
+import com.couchbase.client.core.error.DecodingFailureException;
+import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.json.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Row kept as raw JSON bytes. Creation only indexes offsets of top-level fields with a streaming parser,
+ * a field value is decoded the first time it is read and fields that are never read are never decoded.
+ */
+public class LazyJsonRow implements Row {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Object NULL = new Object();
+
+    private final byte[] bytes;
+    /**
+     * Field name to {@code [start, end)} of its value in {@link #bytes}.
+     */
+    private final Map<String, long[]> fields = new LinkedHashMap<>();
+    private Map<String, Object> decoded;
+
+    public LazyJsonRow(@NotNull byte[] bytes) {
+        this.bytes = bytes;
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DecodingFailureException("Query row is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                long start = parser.getTokenLocation().getByteOffset();
+                if (token.isStructStart()) {
+                    parser.skipChildren();
+                } else {
+                    parser.finishToken();
+                }
+                fields.put(name, new long[]{start, parser.getCurrentLocation().getByteOffset()});
+            }
+        } catch (IOException e) {
+            throw new DecodingFailureException("Malformed query row", e);
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<String> getNames() {
+        return fields.keySet();
+    }
+
+    @Override
+    @Nullable
+    public Object get(@NotNull String name) {
+        long[] range = fields.get(name);
+        if (range == null) {
+            return null;
+        }
+        if (decoded == null) {
+            decoded = new HashMap<>();
+        }
+        Object value = decoded.get(name);
+        if (value == null) {
+            value = decode((int) range[0], (int) range[1]);
+            decoded.put(name, value == null ? NULL : value);
+        }
+        return value == NULL ? null : value;
+    }
+
+    @Nullable
+    private Object decode(int start, int end) {
+        switch (bytes[start]) {
+            case '{':
+                return JsonObject.fromJson(Arrays.copyOfRange(bytes, start, end));
+            case '[':
+                return JsonArray.fromJson(Arrays.copyOfRange(bytes, start, end));
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes, start, end - start)) {
+            switch (parser.nextToken()) {
+                case VALUE_STRING:
+                    return parser.getText();
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    return parser.getNumberValue();
+                case VALUE_TRUE:
+                    return Boolean.TRUE;
+                case VALUE_FALSE:
+                    return Boolean.FALSE;
+                default:
+                    return null;
+            }
+        } catch (IOException e) {
+            throw new DecodingFailureException("Malformed query row", e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return fields.size();
+    }
+
+    @Override
+    @NotNull
+    public Map<String, Object> toMap() {
+        return JsonObject.fromJson(bytes).toMap();
+    }
+
+    @Override
+    public int getByteSize() {
+        return bytes.length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
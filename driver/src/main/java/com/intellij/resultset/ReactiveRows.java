@@ -1,39 +1,103 @@
 package com.intellij.resultset;
 
-import com.couchbase.client.java.json.JsonObject;
 import com.couchbase.client.java.query.ReactiveQueryResult;
+import com.intellij.DriverPropertyInfoHelper.RowDecoding;
+import com.intellij.metrics.DriverMetrics;
 import org.jetbrains.annotations.NotNull;
+import reactor.core.publisher.Flux;
 
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.stream.Stream;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
-public class ReactiveRows implements ResultSetRows<JsonObject> {
-    private Stream<JsonObject> stream;
-    private Iterator<JsonObject> iterator;
+public class ReactiveRows implements ResultSetRows<Row> {
+    private static final RowBuffer.Watermarks DEFAULT_WATERMARKS = RowBuffer.Watermarks.get(new Properties());
+
+    private final RowBuffer<Row> buffer;
+    private final LongAdder decodeNanos;
 
     public ReactiveRows(@NotNull ReactiveQueryResult queryResult, int fetchSize) {
-        this.stream = queryResult.rowsAsObject()
-                .toStream(fetchSize);
-        this.iterator = stream.iterator();
+        this(rows(queryResult, RowDecoding.OBJECT), fetchSize);
+    }
+
+    /**
+     * @param decoding {@link RowDecoding#LAZY} decodes fields on access instead of whole rows on arrival
+     */
+    @NotNull
+    public static Flux<Row> rows(@NotNull ReactiveQueryResult queryResult, @NotNull RowDecoding decoding) {
+        return rows(queryResult, decoding, new LongAdder());
+    }
+
+    /**
+     * @param decodeNanos accumulates time spent decoding rows
+     */
+    @NotNull
+    public static Flux<Row> rows(@NotNull ReactiveQueryResult queryResult, @NotNull RowDecoding decoding,
+                                 @NotNull LongAdder decodeNanos) {
+        Function<byte[], Row> decoder = decoding == RowDecoding.LAZY ? LazyJsonRow::new : JsonObjectRow::decode;
+        return Flux.defer(() -> {
+            // the fields of the first row give the order of result set columns
+            AtomicBoolean isFirst = new AtomicBoolean(decoding != RowDecoding.LAZY);
+            return queryResult.rowsAs(byte[].class)
+                    .map(bytes -> {
+                        DriverMetrics.getInstance().recordDecodedRow(bytes.length);
+                        long start = System.nanoTime();
+                        try {
+                            return isFirst.compareAndSet(true, false)
+                                    ? JsonObjectRow.decodeOrdered(bytes)
+                                    : decoder.apply(bytes);
+                        } finally {
+                            decodeNanos.add(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+    public ReactiveRows(@NotNull Flux<? extends Row> rows, int fetchSize) {
+        this(rows, fetchSize, 0, DEFAULT_WATERMARKS, new LongAdder());
+    }
+
+    /**
+     * @param fetchSize number of rows requested first
+     * @param maxRows   limit of rows after which the upstream is cancelled, 0 for no limit
+     */
+    public ReactiveRows(@NotNull Flux<? extends Row> rows, int fetchSize, int maxRows,
+                        @NotNull RowBuffer.Watermarks watermarks) {
+        this(rows, fetchSize, maxRows, watermarks, new LongAdder());
+    }
+
+    /**
+     * @param decodeNanos time spent decoding {@code rows}, see {@link #rows(ReactiveQueryResult, RowDecoding, LongAdder)}
+     */
+    public ReactiveRows(@NotNull Flux<? extends Row> rows, int fetchSize, int maxRows,
+                        @NotNull RowBuffer.Watermarks watermarks, @NotNull LongAdder decodeNanos) {
+        Flux<? extends Row> limited = maxRows > 0 ? rows.take(maxRows, true) : rows;
+        this.decodeNanos = decodeNanos;
+        this.buffer = new RowBuffer<>(limited, Row::getByteSize, fetchSize, watermarks);
+    }
+
+    public long getDecodeNanos() {
+        return decodeNanos.sum();
+    }
+
+    @NotNull
+    public RowBuffer<Row> getBuffer() {
+        return buffer;
     }
 
     @Override
     public boolean hasNext() {
-        return iterator.hasNext();
+        return buffer.hasNext();
     }
 
     @Override
-    public JsonObject next() {
-        return iterator.next();
+    public Row next() {
+        return buffer.next();
     }
 
     @Override
     public void close() {
-        if (stream != null) {
-            stream.close();
-            iterator = Collections.emptyIterator();
-            stream = null;
-        }
+        buffer.close();
     }
 }
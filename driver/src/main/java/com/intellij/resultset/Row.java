@@ -0,0 +1,30 @@
+package com.intellij.resultset;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Top-level JSON object of a query result row.
+ * Values are {@link com.couchbase.client.java.json.JsonObject}, {@link com.couchbase.client.java.json.JsonArray}
+ * or scalars as in {@link com.couchbase.client.java.json.JsonObject#get(String)}.
+ */
+public interface Row {
+    @NotNull
+    Set<String> getNames();
+
+    @Nullable
+    Object get(@NotNull String name);
+
+    int size();
+
+    @NotNull
+    Map<String, Object> toMap();
+
+    /**
+     * @return size of the encoded row in bytes, 0 if unknown
+     */
+    int getByteSize();
+}
@@ -0,0 +1,430 @@
+package com.intellij.resultset;
+
+import com.intellij.CouchbaseFetchMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+import static com.intellij.DriverPropertyInfoHelper.FETCH_BUFFER_HIGH_BYTES;
+import static com.intellij.DriverPropertyInfoHelper.FETCH_BUFFER_HIGH_BYTES_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.FETCH_BUFFER_HIGH_ROWS;
+import static com.intellij.DriverPropertyInfoHelper.FETCH_BUFFER_HIGH_ROWS_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.FETCH_BUFFER_LOW_BYTES;
+import static com.intellij.DriverPropertyInfoHelper.FETCH_BUFFER_LOW_BYTES_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.FETCH_BUFFER_LOW_ROWS;
+import static com.intellij.DriverPropertyInfoHelper.FETCH_BUFFER_LOW_ROWS_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.getIntProperty;
+
+/**
+ * Blocking iterator over a reactive stream that keeps the number of buffered rows and bytes between
+ * low and high watermarks. The request size doubles whenever the consumer finds the buffer empty and halves
+ * whenever the buffer reaches a high watermark, so fast consumers overlap fetching with processing
+ * and slow consumers do not accumulate rows.
+ * <p>
+ * Without a byte budget, the first request is exactly the fetch size. With a byte budget, a single row is requested
+ * first and the rest of the fetch size once its size is known; this and later requests are limited by the average
+ * size of rows received so far, so that buffered and requested rows fit the budget whatever the size of documents.
+ */
+public class RowBuffer<T> extends BaseSubscriber<T> implements ResultSetRows<T> {
+    private final ToLongFunction<? super T> sizer;
+    private final Watermarks watermarks;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<T> buffer = new ArrayDeque<>();
+    private final CompletableFuture<Boolean> ready = new CompletableFuture<>();
+    /**
+     * Rows of the fetch size not requested yet because the size of rows was not known.
+     */
+    private long deferredInitialRows;
+    private long bufferedBytes = 0;
+    private long outstanding = 0;
+    private int requestSize;
+    private boolean isDone = false;
+    private Throwable error;
+
+    private long maxBufferedRows = 0;
+    private long maxBufferedBytes = 0;
+    private long stallCount = 0;
+    private long stallNanos = 0;
+    private long receivedRows = 0;
+    private long receivedBytes = 0;
+
+    /**
+     * @param sizer       estimated size of a row in bytes, 0 if unknown
+     * @param initialSize number of rows requested first, before the size of rows is known
+     */
+    public RowBuffer(@NotNull Publisher<? extends T> source, @NotNull ToLongFunction<? super T> sizer,
+                     int initialSize, @NotNull Watermarks watermarks) {
+        this.sizer = sizer;
+        this.watermarks = watermarks;
+        this.deferredInitialRows = Math.max(1, initialSize);
+        this.requestSize = Math.max(Math.max(1, watermarks.lowRows), Math.min(initialSize, watermarks.highRows));
+        source.subscribe(this);
+    }
+
+    @Override
+    protected void hookOnSubscribe(@NotNull Subscription subscription) {
+        long n;
+        lock.lock();
+        try {
+            // with a byte budget, a probe row tells the size of rows before the rest of the fetch size is requested
+            n = watermarks.byteBudget > 0 ? 1 : deferredInitialRows;
+            deferredInitialRows -= n;
+            outstanding = n;
+        } finally {
+            lock.unlock();
+        }
+        subscription.request(n);
+    }
+
+    @Override
+    protected void hookOnNext(@NotNull T row) {
+        long n = 0;
+        lock.lock();
+        try {
+            if (isDone) {
+                return;
+            }
+            long size = sizer.applyAsLong(row);
+            buffer.add(row);
+            bufferedBytes += size;
+            receivedRows++;
+            receivedBytes += size;
+            outstanding = Math.max(0, outstanding - 1);
+            maxBufferedRows = Math.max(maxBufferedRows, buffer.size());
+            maxBufferedBytes = Math.max(maxBufferedBytes, bufferedBytes);
+            if (buffer.size() >= watermarks.highRows || bufferedBytes >= watermarks.highBytes) {
+                requestSize = Math.max(Math.max(1, watermarks.lowRows), requestSize / 2);
+            }
+            if (deferredInitialRows > 0) {
+                n = Math.max(0, Math.min(deferredInitialRows, getAffordableRows(getAverageRowBytes())));
+                deferredInitialRows = 0;
+                outstanding += n;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (n > 0) {
+            request(n);
+        }
+        ready.complete(true);
+    }
+
+    @Override
+    protected void hookOnComplete() {
+        finish(null);
+    }
+
+    @Override
+    protected void hookOnError(@NotNull Throwable throwable) {
+        finish(throwable);
+    }
+
+    private void finish(Throwable throwable) {
+        lock.lock();
+        try {
+            isDone = true;
+            error = throwable;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (throwable == null) {
+            ready.complete(false);
+        } else {
+            ready.completeExceptionally(throwable);
+        }
+    }
+
+    /**
+     * @return future completed with true once a row is buffered or with false if the stream completed empty,
+     * so that {@link #hasNext()} no longer blocks
+     */
+    @NotNull
+    public CompletableFuture<Boolean> whenReady() {
+        return ready;
+    }
+
+    @Override
+    public boolean hasNext() {
+        lock.lock();
+        try {
+            while (buffer.isEmpty() && !isDone) {
+                stallCount++;
+                requestSize = Math.min(watermarks.highRows, requestSize * 2);
+                requestMore(true);
+                long start = System.nanoTime();
+                try {
+                    while (buffer.isEmpty() && !isDone) {
+                        changed.await();
+                    }
+                } finally {
+                    stallNanos += System.nanoTime() - start;
+                }
+            }
+            if (!buffer.isEmpty()) {
+                return true;
+            }
+            if (error != null) {
+                throw Exceptions.propagate(error);
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw Exceptions.propagate(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public T next() {
+        lock.lock();
+        try {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T row = buffer.poll();
+            bufferedBytes -= sizer.applyAsLong(row);
+            requestMore(false);
+            return row;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Requests rows unless the rows buffered and in flight already reach the low watermarks,
+     * or, for a stalled consumer, the high watermark of rows.
+     */
+    private void requestMore(boolean stalled) {
+        if (isDone) {
+            return;
+        }
+        long inFlight = buffer.size() + outstanding;
+        if (!stalled && (inFlight > watermarks.lowRows || bufferedBytes > watermarks.lowBytes)) {
+            return;
+        }
+        long n = Math.min(requestSize, watermarks.highRows - inFlight);
+        if (watermarks.byteBudget > 0) {
+            n = Math.min(n, getAffordableRows());
+        }
+        if (n > 0) {
+            outstanding += n;
+            request(n);
+        }
+    }
+
+    /**
+     * @return number of rows of the average size that fit the byte budget besides buffered and requested ones,
+     * at least one if nothing is buffered or requested
+     */
+    private long getAffordableRows() {
+        if (buffer.isEmpty() && outstanding == 0) {
+            return Math.max(1, getAffordableRows(getAverageRowBytes()));
+        }
+        return getAffordableRows(getAverageRowBytes());
+    }
+
+    private long getAffordableRows(long averageRowBytes) {
+        if (averageRowBytes == 0) {
+            return receivedRows == 0 ? 0 : Long.MAX_VALUE;
+        }
+        long free = watermarks.byteBudget - bufferedBytes - outstanding * averageRowBytes;
+        return free / averageRowBytes;
+    }
+
+    @Override
+    public void close() {
+        dispose();
+        lock.lock();
+        try {
+            isDone = true;
+            buffer.clear();
+            bufferedBytes = 0;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        ready.complete(false);
+    }
+
+    public int getBufferedRows() {
+        lock.lock();
+        try {
+            return buffer.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBufferedBytes() {
+        lock.lock();
+        try {
+            return bufferedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaxBufferedRows() {
+        lock.lock();
+        try {
+            return maxBufferedRows;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaxBufferedBytes() {
+        lock.lock();
+        try {
+            return maxBufferedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getRequestSize() {
+        lock.lock();
+        try {
+            return requestSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return consistent snapshot of stalls and occupancy of the buffer
+     */
+    @NotNull
+    public CouchbaseFetchMetrics getMetrics() {
+        lock.lock();
+        try {
+            return new Metrics(stallCount, stallNanos, maxBufferedRows, maxBufferedBytes, requestSize,
+                    receivedRows == 0 ? 0 : receivedBytes / receivedRows);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return average size of received rows in bytes, 0 if unknown
+     */
+    public long getAverageRowBytes() {
+        lock.lock();
+        try {
+            return receivedRows == 0 ? 0 : receivedBytes / receivedRows;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static final class Metrics implements CouchbaseFetchMetrics {
+        static final Metrics EMPTY = new Metrics(0, 0, 0, 0, 0, 0);
+
+        private final long stallCount;
+        private final long stallNanos;
+        private final long maxBufferedRows;
+        private final long maxBufferedBytes;
+        private final int requestSize;
+        private final long averageRowBytes;
+
+        Metrics(long stallCount, long stallNanos, long maxBufferedRows, long maxBufferedBytes, int requestSize,
+                long averageRowBytes) {
+            this.stallCount = stallCount;
+            this.stallNanos = stallNanos;
+            this.maxBufferedRows = maxBufferedRows;
+            this.maxBufferedBytes = maxBufferedBytes;
+            this.requestSize = requestSize;
+            this.averageRowBytes = averageRowBytes;
+        }
+
+        @Override
+        public long getStallCount() {
+            return stallCount;
+        }
+
+        @Override
+        public @NotNull Duration getStallTime() {
+            return Duration.ofNanos(stallNanos);
+        }
+
+        @Override
+        public long getMaxBufferedRows() {
+            return maxBufferedRows;
+        }
+
+        @Override
+        public long getMaxBufferedBytes() {
+            return maxBufferedBytes;
+        }
+
+        @Override
+        public int getRequestSize() {
+            return requestSize;
+        }
+
+        @Override
+        public long getAverageRowBytes() {
+            return averageRowBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "stalls=" + stallCount + ", stallTime=" + getStallTime().toMillis() + "ms, maxBufferedRows=" +
+                    maxBufferedRows + ", maxBufferedBytes=" + maxBufferedBytes + ", requestSize=" + requestSize +
+                    ", averageRowBytes=" + averageRowBytes;
+        }
+    }
+
+    public static class Watermarks {
+        private final int lowRows;
+        private final int highRows;
+        private final long lowBytes;
+        private final long highBytes;
+        private final long byteBudget;
+
+        public Watermarks(int lowRows, int highRows, long lowBytes, long highBytes) {
+            this(lowRows, highRows, lowBytes, highBytes, 0);
+        }
+
+        /**
+         * @param byteBudget maximum size of buffered and requested rows in bytes, 0 for no limit
+         */
+        public Watermarks(int lowRows, int highRows, long lowBytes, long highBytes, long byteBudget) {
+            this.lowRows = Math.max(0, lowRows);
+            this.highRows = Math.max(Math.max(1, lowRows), highRows);
+            this.lowBytes = Math.max(0, lowBytes);
+            this.highBytes = Math.max(lowBytes, highBytes);
+            this.byteBudget = Math.max(0, byteBudget);
+        }
+
+        @NotNull
+        public Watermarks withByteBudget(long byteBudget) {
+            return new Watermarks(lowRows, highRows, lowBytes, highBytes, byteBudget);
+        }
+
+        @NotNull
+        public static Watermarks get(@NotNull Properties properties) {
+            return new Watermarks(
+                    getIntProperty(properties, FETCH_BUFFER_LOW_ROWS, FETCH_BUFFER_LOW_ROWS_DEFAULT),
+                    getIntProperty(properties, FETCH_BUFFER_HIGH_ROWS, FETCH_BUFFER_HIGH_ROWS_DEFAULT),
+                    getIntProperty(properties, FETCH_BUFFER_LOW_BYTES, FETCH_BUFFER_LOW_BYTES_DEFAULT),
+                    getIntProperty(properties, FETCH_BUFFER_HIGH_BYTES, FETCH_BUFFER_HIGH_BYTES_DEFAULT));
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class ColumnTypeHelper {
         javaTypeMap.put("null", Types.NULL);
         javaTypeMap.put("float", Types.FLOAT);
         javaTypeMap.put("double", Types.DOUBLE);
+        javaTypeMap.put("json", Types.OTHER);
 
 
         typeNameMap.put("map", "java.util.Map");
@@ -38,6 +39,7 @@ public class ColumnTypeHelper {
         typeNameMap.put("null", "java.lang.Object");
         typeNameMap.put("float", "java.lang.Float");
         typeNameMap.put("double", "java.lang.Double");
+        typeNameMap.put("json", "java.lang.Object");
     }
 
     public static int getJavaType(String typeName) {
@@ -0,0 +1,62 @@
+package com.intellij;
+
+import org.junit.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class BlockingUtilTest {
+
+    @Test
+    public void testAwait() {
+        assertEquals("a", BlockingUtil.await(Mono.just("a")));
+        assertNull(BlockingUtil.await(Mono.empty()));
+        assertEquals(Integer.valueOf(1), BlockingUtil.awaitFirst(Flux.range(1, 3)));
+        assertEquals(Integer.valueOf(3), BlockingUtil.awaitLast(Flux.range(1, 3)));
+        assertNull(BlockingUtil.awaitLast(Flux.empty()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testErrorIsRethrown() {
+        BlockingUtil.await(Mono.error(new IllegalStateException()));
+    }
+
+    @Test
+    public void testCheckedErrorIsWrapped() {
+        IOException error = new IOException("failed");
+        try {
+            BlockingUtil.await(Mono.error(error));
+            fail("Error should be rethrown");
+        } catch (RuntimeException e) {
+            assertSame(error, Exceptions.unwrap(e));
+        }
+    }
+
+    @Test
+    public void testInterruptCancelsSubscription() throws InterruptedException {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread thread = new Thread(() -> {
+            try {
+                BlockingUtil.await(Mono.never().doOnCancel(() -> cancelled.set(true)));
+            } catch (RuntimeException e) {
+                error.set(Exceptions.unwrap(e));
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        thread.start();
+        Thread.sleep(100);
+        thread.interrupt();
+        thread.join(5_000);
+        assertTrue(cancelled.get());
+        assertTrue(error.get() instanceof InterruptedException);
+        assertTrue("Interrupt status should be restored", interrupted.get());
+    }
+}
@@ -0,0 +1,104 @@
+package com.intellij;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ClusterConnectionRegistryTest {
+    private final ClusterConnectionRegistry registry = new ClusterConnectionRegistry();
+
+    @Test
+    public void testSharedUntilLastRelease() throws SQLException {
+        ClusterConnection first = registry.acquire("key", 0, TestClusterConnection::new, null);
+        ClusterConnection second = registry.acquire("key", 0, TestClusterConnection::new, null);
+        assertSame(first, second);
+        assertEquals(1, registry.getMissCount());
+        assertEquals(1, registry.getHitCount());
+        registry.release(first);
+        assertFalse(((TestClusterConnection) first).closed);
+        registry.release(second);
+        assertTrue(((TestClusterConnection) first).closed);
+        assertEquals(0, registry.getLiveEnvironmentCount());
+    }
+
+    @Test
+    public void testDifferentKeys() throws SQLException {
+        ClusterConnection first = registry.acquire("first", 0, TestClusterConnection::new, null);
+        ClusterConnection second = registry.acquire("second", 0, TestClusterConnection::new, null);
+        assertNotSame(first, second);
+        assertEquals(2, registry.getLiveEnvironmentCount());
+    }
+
+    @Test
+    public void testReacquiredDuringGracePeriod() throws SQLException {
+        ClusterConnection connection = registry.acquire("key", TimeUnit.MINUTES.toMillis(1), TestClusterConnection::new, null);
+        registry.release(connection);
+        assertSame(connection, registry.acquire("key", TimeUnit.MINUTES.toMillis(1), TestClusterConnection::new, null));
+        assertFalse(((TestClusterConnection) connection).closed);
+    }
+
+    @Test
+    public void testClosedAfterIdleTimeout() throws Exception {
+        TestClusterConnection connection = (TestClusterConnection) registry.acquire("key", 10, TestClusterConnection::new, null);
+        registry.release(connection);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (registry.getLiveEnvironmentCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("Idle cluster should be closed", 0, registry.getLiveEnvironmentCount());
+        assertTrue(connection.closed);
+    }
+
+    @Test
+    public void testCreatedOutsideRegistryLock() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        ClusterConnectionRegistry.Factory slowFactory = () -> {
+            created.incrementAndGet();
+            creating.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            return new TestClusterConnection();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ClusterConnection> first = executor.submit(() -> registry.acquire("slow", 0, slowFactory, null));
+            assertTrue(creating.await(10, TimeUnit.SECONDS));
+            Future<ClusterConnection> second = executor.submit(() -> registry.acquire("slow", 0, slowFactory, null));
+            // another endpoint is not blocked by the bootstrap in progress
+            assertNotNull(registry.acquire("fast", 0, TestClusterConnection::new, null));
+            proceed.countDown();
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, created.get());
+        } finally {
+            proceed.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedCreationIsNotCached() throws SQLException {
+        try {
+            registry.acquire("key", 0, () -> {
+                throw new SQLException("unreachable");
+            }, null);
+            fail("Creation error should be rethrown");
+        } catch (SQLException e) {
+            assertEquals("unreachable", e.getMessage());
+        }
+        assertEquals(0, registry.getLiveEnvironmentCount());
+        assertNotNull(registry.acquire("key", 0, TestClusterConnection::new, null));
+    }
+}
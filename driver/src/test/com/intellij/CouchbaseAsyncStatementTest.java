@@ -0,0 +1,145 @@
+package com.intellij;
+
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.query.QueryChunkHeader;
+import com.couchbase.client.core.msg.query.QueryChunkRow;
+import com.couchbase.client.core.msg.query.QueryChunkTrailer;
+import com.couchbase.client.core.msg.query.QueryResponse;
+import com.couchbase.client.java.codec.DefaultJsonSerializer;
+import com.couchbase.client.java.query.ReactiveQueryResult;
+import com.intellij.metrics.DriverMetrics;
+import com.intellij.metrics.StatementKind;
+import com.intellij.metrics.StatementKindMetrics;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class CouchbaseAsyncStatementTest {
+    private final TestClusterConnection cluster = new TestClusterConnection();
+    private final CouchbaseConnection connection = new CouchbaseConnection(cluster,
+            new CouchbaseJdbcDriver(), new CouchbaseClientURI("jdbc:couchbase:localhost", null), new Properties());
+
+    @Test
+    public void testResultSetIsClosedWithStatement() throws SQLException {
+        CouchbaseStatement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQueryAsyncInner(Mono.just(result("{\"id\":1}"))).join();
+        assertSame(resultSet, statement.getResultSet());
+        statement.close();
+        assertTrue(resultSet.isClosed());
+    }
+
+    @Test
+    public void testResultSetIsClosedOnNextExecution() throws SQLException {
+        CouchbaseStatement statement = connection.createStatement();
+        ResultSet first = statement.executeQueryAsyncInner(Mono.just(result("{\"id\":1}"))).join();
+        ResultSet second = statement.executeQueryAsyncInner(Mono.just(result("{\"id\":2}"))).join();
+        assertTrue(first.isClosed());
+        assertSame(second, statement.getResultSet());
+    }
+
+    @Test
+    public void testLateResultOfClosedStatement() throws SQLException {
+        CouchbaseStatement statement = connection.createStatement();
+        Sinks.One<ReactiveQueryResult> response = Sinks.one();
+        CompletableFuture<ResultSet> future = statement.executeQueryAsyncInner(response.asMono());
+        statement.close();
+        response.tryEmitValue(result("{\"id\":1}"));
+        try {
+            future.join();
+            fail("Result of a closed statement should not be returned");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+
+    @Test
+    public void testOnlyRunningRequestsAreCancelledOnServer() throws SQLException {
+        CouchbaseStatement statement = connection.createStatement();
+        statement.cancel();
+        assertTrue("Nothing was executed", cluster.cancelledRequests.isEmpty());
+
+        statement.startExecution("SELECT 1", null);
+        statement.executeQueryAsyncInner(Mono.just(result("{\"id\":1}"))).join();
+        statement.cancel();
+        assertTrue("Result was already received", cluster.cancelledRequests.isEmpty());
+
+        statement.startExecution("SELECT 2", null);
+        Sinks.One<ReactiveQueryResult> response = Sinks.one();
+        CompletableFuture<ResultSet> future = statement.executeQueryAsyncInner(response.asMono());
+        statement.cancel();
+        statement.cancel();
+        assertEquals(1, cluster.cancelledRequests.size());
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testLatencyIsRecordedOnceRowsComplete() throws SQLException {
+        StatementKindMetrics metrics = DriverMetrics.getInstance().getStatementMetrics(StatementKind.N1QL);
+        CouchbaseStatement statement = connection.createStatement();
+        Sinks.Many<QueryChunkRow> rows = Sinks.many().unicast().onBackpressureBuffer();
+        long count = metrics.getCount();
+        rows.tryEmitNext(row("{\"id\":1}"));
+        ResultSet resultSet = statement.executeQueryAsyncInner(Mono.just(result(rows.asFlux()))).join();
+        assertTrue(resultSet.next());
+        assertEquals(count, metrics.getCount());
+        rows.tryEmitNext(row("{\"id\":2}"));
+        rows.tryEmitComplete();
+        assertTrue(resultSet.next());
+        assertFalse(resultSet.next());
+        assertEquals(count + 1, metrics.getCount());
+        statement.close();
+        assertEquals(count + 1, metrics.getCount());
+    }
+
+    @Test
+    public void testProjectionColumnsKeepFieldOrder() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty(DriverPropertyInfoHelper.RESULTSET_COLUMNS, "projection");
+        CouchbaseConnection projection = new CouchbaseConnection(new TestClusterConnection(), new CouchbaseJdbcDriver(),
+                new CouchbaseClientURI("jdbc:couchbase:localhost", null), properties);
+        CouchbaseStatement statement = projection.createStatement();
+        ResultSet resultSet = statement.executeQueryAsyncInner(Mono.just(result(
+                "{\"name\":\"a\",\"age\":1,\"zip\":\"z\",\"city\":\"c\"}", "{\"name\":\"b\",\"country\":\"x\"}"))).join();
+        assertTrue(resultSet.next());
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        assertEquals(4, metaData.getColumnCount());
+        assertEquals("name", metaData.getColumnName(1));
+        assertEquals("age", metaData.getColumnName(2));
+        assertEquals("zip", metaData.getColumnName(3));
+        assertEquals("city", metaData.getColumnName(4));
+        assertEquals("a", resultSet.getString(1));
+        assertTrue(resultSet.next());
+        assertEquals("country", resultSet.getMetaData().getColumnName(5));
+        assertEquals("x", resultSet.getString("country"));
+        assertNull(resultSet.getString("age"));
+        statement.close();
+    }
+
+    private static ReactiveQueryResult result(String... rows) {
+        return result(Flux.fromArray(rows).map(CouchbaseAsyncStatementTest::row));
+    }
+
+    private static QueryChunkRow row(String json) {
+        return new QueryChunkRow(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ReactiveQueryResult result(Flux<QueryChunkRow> chunks) {
+        QueryChunkTrailer trailer = new QueryChunkTrailer("success", Optional.empty(), Optional.empty(),
+                Optional.empty(), Optional.empty());
+        QueryChunkHeader header = new QueryChunkHeader("request", Optional.empty(), Optional.empty(), Optional.empty());
+        return new ReactiveQueryResult(new QueryResponse(ResponseStatus.SUCCESS, header, chunks, Mono.just(trailer)),
+                DefaultJsonSerializer.create());
+    }
+}
@@ -146,4 +146,13 @@ public class CouchbaseClientURITest {
         assertEquals("default", uri.getDefaultBucket());
         assertEquals("localhost:9042?", uri.getConnectionString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testClusterKeyIncludesSharedClusterSettings() {
+        String url = "jdbc:couchbase:localhost:9042?user=user&password=pass";
+        Object key = new CouchbaseClientURI(url, null).getClusterKey();
+        assertEquals(key, new CouchbaseClientURI(url + "&defaultBucket=default", null).getClusterKey());
+        assertNotEquals(key, new CouchbaseClientURI(url + "&cluster.idle.timeout=0", null).getClusterKey());
+        assertNotEquals(key, new CouchbaseClientURI(url + "&query.prepared.cache.size=10", null).getClusterKey());
+    }
+}
@@ -0,0 +1,96 @@
+package com.intellij;
+
+import com.intellij.metrics.ConnectionMetrics;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CouchbaseDataSourceTest {
+    private final CouchbaseDataSource dataSource = new CouchbaseDataSource() {
+        @Override
+        public CouchbasePooledConnection getPooledConnection() {
+            CouchbaseClientURI uri = new CouchbaseClientURI("jdbc:couchbase:localhost", null);
+            return new CouchbasePooledConnection(new CouchbaseConnection(new TestClusterConnection(),
+                    new CouchbaseJdbcDriver(), uri, new Properties()));
+        }
+    };
+
+    @After
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void testPoolIsBounded() throws SQLException {
+        dataSource.setMaxPoolSize(2);
+        dataSource.setConnectionTimeout(10);
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+        assertTimesOut();
+        assertEquals(2, dataSource.getPoolSize());
+        first.close();
+        dataSource.getConnection();
+        assertEquals(2, dataSource.getPoolSize());
+        assertEquals(3, dataSource.getBorrowCount());
+    }
+
+    @Test
+    public void testLoginTimeoutBoundsWait() throws SQLException {
+        dataSource.setMaxPoolSize(1);
+        dataSource.setConnectionTimeout(TimeUnit.HOURS.toMillis(1));
+        dataSource.setLoginTimeout(1);
+        dataSource.getConnection();
+        assertTimesOut();
+    }
+
+    @Test
+    public void testCloseReturnsResetConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.setReadOnly(true);
+        Statement statement = connection.createStatement();
+        connection.close();
+        assertTrue(connection.isClosed());
+        assertTrue("Statements should be closed on return", statement.isClosed());
+        assertEquals(1, dataSource.getIdleConnections());
+
+        Connection reused = dataSource.getConnection();
+        assertEquals(1, dataSource.getPoolSize());
+        assertEquals(0, dataSource.getIdleConnections());
+        assertFalse(reused.isReadOnly());
+        try {
+            connection.createStatement();
+            fail("Returned handle should not be usable");
+        } catch (SQLException ignore) {
+        }
+    }
+
+    @Test
+    public void testPhysicalConnectionIsNotExposed() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        assertFalse(connection.isWrapperFor(CouchbaseConnection.class));
+        assertTrue(connection.isWrapperFor(ConnectionMetrics.class));
+        assertSame(connection, connection.unwrap(Connection.class));
+        assertNotNull(connection.unwrap(ConnectionMetrics.class));
+        try {
+            connection.unwrap(CouchbaseConnection.class);
+            fail("Physical connection should not be exposed");
+        } catch (SQLException ignore) {
+        }
+    }
+
+    private void assertTimesOut() throws SQLException {
+        try {
+            dataSource.getConnection();
+            fail("Exhausted pool should time out");
+        } catch (SQLTimeoutException ignore) {
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.intellij;
+
+import com.intellij.DriverPropertyInfoHelper.RowDecoding;
+import org.junit.Test;
+
+import java.sql.DriverPropertyInfo;
+import java.util.Properties;
+
+import static com.intellij.DriverPropertyInfoHelper.RESULTSET_DECODING;
+import static com.intellij.DriverPropertyInfoHelper.RESULTSET_DECODING_DEFAULT;
+import static com.intellij.DriverPropertyInfoHelper.getEnumProperty;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DriverPropertyInfoHelperTest {
+
+    @Test
+    public void testEnumProperty() {
+        Properties properties = new Properties();
+        assertEquals(RowDecoding.OBJECT, getEnumProperty(properties, RESULTSET_DECODING, RESULTSET_DECODING_DEFAULT));
+        properties.setProperty(RESULTSET_DECODING, " Lazy");
+        assertEquals(RowDecoding.LAZY, getEnumProperty(properties, RESULTSET_DECODING, RESULTSET_DECODING_DEFAULT));
+        properties.setProperty(RESULTSET_DECODING, "eager");
+        assertEquals(RowDecoding.OBJECT, getEnumProperty(properties, RESULTSET_DECODING, RESULTSET_DECODING_DEFAULT));
+    }
+
+    @Test
+    public void testEnumPropertyInfo() {
+        for (DriverPropertyInfo info : DriverPropertyInfoHelper.getPropertyInfo()) {
+            if (info.name.equals(RESULTSET_DECODING)) {
+                assertEquals("object", info.value);
+                assertArrayEquals(new String[]{"object", "lazy"}, info.choices);
+                return;
+            }
+        }
+        throw new AssertionError(RESULTSET_DECODING + " is not described");
+    }
+}
@@ -0,0 +1,40 @@
+package com.intellij;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InsertValuesRewriterTest {
+
+    @Test
+    public void testRewriteInsert() {
+        InsertValuesRewriter rewriter = InsertValuesRewriter.create("INSERT INTO ks (KEY, VALUE) VALUES (?, ?)", 2);
+        assertNotNull(rewriter);
+        assertEquals("INSERT INTO ks (KEY, VALUE) VALUES (?, ?), (?, ?), (?, ?)", rewriter.rewrite(3));
+    }
+
+    @Test
+    public void testRewriteUpsertWithObjectValue() {
+        InsertValuesRewriter rewriter = InsertValuesRewriter.create(
+                "upsert into `b`.s.c (key, value) values (?, {\"name\": ?, \"note\": \"(x)\"});", 2);
+        assertNotNull(rewriter);
+        assertEquals("upsert into `b`.s.c (key, value) values (?, {\"name\": ?, \"note\": \"(x)\"}), " +
+                "(?, {\"name\": ?, \"note\": \"(x)\"})", rewriter.rewrite(2));
+    }
+
+    @Test
+    public void testNotRewritable() {
+        assertNull(InsertValuesRewriter.create("INSERT INTO ks (KEY, VALUE) VALUES (?, ?) RETURNING META().id", 2));
+        assertNull(InsertValuesRewriter.create("INSERT INTO ks (KEY, VALUE) VALUES (?, ?), (?, ?)", 4));
+        assertNull(InsertValuesRewriter.create("INSERT INTO ks (KEY, VALUE) VALUES ($1, $2)", 0));
+        assertNull(InsertValuesRewriter.create("INSERT INTO ks (KEY, VALUE) VALUES ('k', {})", 0));
+        assertNull(InsertValuesRewriter.create("INSERT INTO ks (KEY k, VALUE v) SELECT k, v FROM src", 0));
+        assertNull(InsertValuesRewriter.create("SELECT * FROM ks WHERE a = ?", 1));
+    }
+
+    @Test
+    public void testQuestionMarkInLiteralIsNotParameter() {
+        assertNull(InsertValuesRewriter.create("INSERT INTO ks (KEY, VALUE) VALUES (?, '?')", 2));
+        assertNotNull(InsertValuesRewriter.create("INSERT INTO ks (KEY, VALUE) VALUES (?, '?')", 1));
+    }
+}
@@ -0,0 +1,95 @@
+package com.intellij;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PreparedStatementCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedPlanIsEvicted() {
+        List<String> evicted = new ArrayList<>();
+        PreparedStatementCache cache = new PreparedStatementCache(2, evicted::add);
+        cache.put("SELECT 1", "p1");
+        cache.put("SELECT 2", "p2");
+        assertEquals("p1", cache.get("SELECT 1"));
+        cache.put("SELECT 3", "p3");
+        assertEquals(Collections.singletonList("p2"), evicted);
+        assertNull(cache.get("SELECT 2"));
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testInvalidate() {
+        PreparedStatementCache cache = new PreparedStatementCache(2, name -> { });
+        cache.put("SELECT 1", "p1");
+        cache.invalidate("SELECT 1", "p0");
+        assertEquals("p1", cache.get("SELECT 1"));
+        cache.invalidate("SELECT 1", "p1");
+        assertNull(cache.get("SELECT 1"));
+    }
+
+    @Test
+    public void testConcurrentPutsKeepFirstPlan() throws Exception {
+        List<String> evicted = Collections.synchronizedList(new ArrayList<>());
+        PreparedStatementCache cache = new PreparedStatementCache(2, evicted::add);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> {
+                start.await();
+                return cache.put("SELECT 1", "p1");
+            });
+            Future<String> second = executor.submit(() -> {
+                start.await();
+                return cache.put("SELECT 1", "p2");
+            });
+            start.countDown();
+            String winner = first.get(10, TimeUnit.SECONDS);
+            assertEquals(winner, second.get(10, TimeUnit.SECONDS));
+            assertEquals(winner, cache.get("SELECT 1"));
+            assertEquals(Collections.singletonList(winner.equals("p1") ? "p2" : "p1"), evicted);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        assertFalse(new PreparedStatementCache(0, name -> { }).isEnabled());
+    }
+
+    @Test
+    public void testPlanNamesAreUnique() {
+        PreparedStatementCache cache = new PreparedStatementCache(2, name -> { });
+        assertNotEquals(cache.newPlanName(), cache.newPlanName());
+    }
+
+    @Test
+    public void testPreparable() {
+        assertTrue(PreparedStatementCache.isPreparable("  select * from b"));
+        assertTrue(PreparedStatementCache.isPreparable("(SELECT 1)"));
+        assertTrue(PreparedStatementCache.isPreparable("UPSERT INTO b VALUES ('k', {})"));
+        assertFalse(PreparedStatementCache.isPreparable("INFER b"));
+        assertFalse(PreparedStatementCache.isPreparable("CREATE INDEX i ON b(f)"));
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("SELECT * FROM b WHERE a = 'x  y'",
+                SqlUtil.normalize("  SELECT *\n\tFROM   b WHERE a = 'x  y' ;"));
+        assertEquals("SELECT `a  b` FROM b", SqlUtil.normalize("SELECT `a  b`  FROM b"));
+        assertEquals("SELECT 'it\\'s  ok'", SqlUtil.normalize("SELECT   'it\\'s  ok'"));
+    }
+}
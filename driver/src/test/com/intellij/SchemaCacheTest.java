@@ -0,0 +1,65 @@
+package com.intellij;
+
+import com.intellij.meta.ColumnInfo;
+import org.junit.Test;
+
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SchemaCacheTest {
+    private static final List<ColumnInfo> COLUMNS = Collections.singletonList(new ColumnInfo("name", Types.VARCHAR, "string"));
+
+    private static final String SAMPLING_100 = "client:100:0";
+    private static final String SAMPLING_10 = "client:10:0";
+
+    private final AtomicLong now = new AtomicLong();
+    private final SchemaCache cache = new SchemaCache(now::get);
+
+    @Test
+    public void testExpiration() {
+        cache.put("default", "users", SAMPLING_100, COLUMNS, cache.getGeneration());
+        assertEquals(COLUMNS, cache.get("default", "users", SAMPLING_100, 1000));
+        assertNull(cache.get("default", "users", SAMPLING_10, 1000));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNull(cache.get("default", "users", SAMPLING_100, 1000));
+        assertEquals(COLUMNS, cache.get("default", "users", SAMPLING_100, 2000));
+        assertNull(cache.get("default", "users", SAMPLING_100, 0));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.put("default", "users", SAMPLING_100, COLUMNS, cache.getGeneration());
+        cache.put("default", "users", SAMPLING_10, COLUMNS, cache.getGeneration());
+        cache.put("default", "orders", SAMPLING_100, COLUMNS, cache.getGeneration());
+        cache.invalidate("default", "users");
+        assertNull(cache.get("default", "users", SAMPLING_100, 1000));
+        assertNull(cache.get("default", "users", SAMPLING_10, 1000));
+        assertEquals(COLUMNS, cache.get("default", "orders", SAMPLING_100, 1000));
+        cache.invalidateAll();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testSchemaSampledBeforeInvalidationIsNotCached() {
+        long generation = cache.getGeneration();
+        cache.invalidate("default", "users");
+        cache.put("default", "users", SAMPLING_100, COLUMNS, generation);
+        assertNull(cache.get("default", "users", SAMPLING_100, 1000));
+    }
+
+    @Test
+    public void testRefreshIsStartedOncePerWindow() {
+        assertTrue(cache.tryStartRefresh("default", "users", SAMPLING_100, 1000));
+        assertFalse(cache.tryStartRefresh("default", "users", SAMPLING_100, 1000));
+        assertTrue(cache.tryStartRefresh("default", "users", SAMPLING_10, 1000));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(cache.tryStartRefresh("default", "users", SAMPLING_100, 1000));
+    }
+}
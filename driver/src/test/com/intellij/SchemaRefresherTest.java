@@ -0,0 +1,36 @@
+package com.intellij;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SchemaRefresherTest {
+
+    @Test
+    public void testParallelismAndClose() {
+        SchemaRefresher refresher = new SchemaRefresher(2);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        List<Sinks.Empty<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Sinks.Empty<Void> result = Sinks.empty();
+            results.add(result);
+            refresher.submit(result.asMono()
+                    .doOnSubscribe(s -> started.incrementAndGet())
+                    .doOnCancel(cancelled::incrementAndGet));
+        }
+        assertEquals(2, started.get());
+        results.get(0).tryEmitError(new IllegalStateException());
+        assertEquals("Failed refresh frees its slot", 3, started.get());
+        refresher.close();
+        assertEquals(2, cancelled.get());
+        refresher.submit(Mono.fromRunnable(started::incrementAndGet));
+        assertEquals(3, started.get());
+    }
+}
@@ -0,0 +1,98 @@
+package com.intellij;
+
+import com.intellij.meta.ColumnInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class SchemaStoreTest {
+    private static final List<ColumnInfo> COLUMNS = Arrays.asList(
+            new ColumnInfo("name", Types.VARCHAR, "string"),
+            new ColumnInfo("address.city", Types.VARCHAR, "string"),
+            new ColumnInfo("age", Types.INTEGER, "integer"));
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("schema-store");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        SchemaStore store = new SchemaStore(directory.resolve("cluster.schemas"));
+        assertNull(store.get("default", "users", "client:1000"));
+        store.put("default", "users", "client:1000", COLUMNS);
+        store.put("default", "orders", "client:1000", COLUMNS.subList(0, 1));
+        store.flush();
+
+        SchemaStore reopened = new SchemaStore(directory.resolve("cluster.schemas"));
+        List<ColumnInfo> columns = reopened.get("default", "users", "client:1000");
+        assertNotNull(columns);
+        assertEquals(COLUMNS, columns);
+        assertEquals(Types.INTEGER, columns.get(2).getType());
+        assertEquals("integer", columns.get(2).getTypeName());
+        assertNull(reopened.get("default", "users", "infer:1000"));
+
+        reopened.remove("default", "users");
+        reopened.flush();
+        SchemaStore third = new SchemaStore(directory.resolve("cluster.schemas"));
+        assertNull(third.get("default", "users", "client:1000"));
+        assertEquals(1, third.get("default", "orders", "client:1000").size());
+    }
+
+    @Test
+    public void testCorruptedFileIsIgnored() throws IOException {
+        Path file = directory.resolve("cluster.schemas");
+        Files.write(file, new byte[]{1, 2, 3});
+        SchemaStore store = new SchemaStore(file);
+        assertNull(store.get("default", "users", "client:1000"));
+        store.put("default", "users", "client:1000", COLUMNS);
+        store.flush();
+        assertEquals(COLUMNS, new SchemaStore(file).get("default", "users", "client:1000"));
+    }
+
+    @Test
+    public void testStoreIsSharedByCaches() {
+        SchemaStore first = new SchemaCache().getStore(directory, () -> "cluster");
+        SchemaStore second = new SchemaCache().getStore(directory.resolve("."), () -> "cluster");
+        assertNotNull(first);
+        assertSame(first, second);
+        first.put("default", "users", "client:1000", COLUMNS);
+        second.put("default", "orders", "client:1000", COLUMNS);
+        second.flush();
+        SchemaStore reopened = new SchemaStore(first.getFile());
+        assertEquals(COLUMNS, reopened.get("default", "users", "client:1000"));
+        assertEquals(COLUMNS, reopened.get("default", "orders", "client:1000"));
+    }
+
+    @Test
+    public void testSchemaSampledBeforeInvalidationIsNotStored() {
+        SchemaStore store = new SchemaStore(directory.resolve("cluster.schemas"));
+        SchemaCache cache = new SchemaCache();
+        long generation = cache.getGeneration();
+        cache.store(store, "default", "users", "client:1000:0", COLUMNS, generation);
+        assertEquals(COLUMNS, store.get("default", "users", "client:1000:0"));
+        cache.invalidateAll();
+        cache.store(store, "default", "users", "client:1000:0", COLUMNS, generation);
+        assertNull(store.get("default", "users", "client:1000:0"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.intellij;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SqlUtilTest {
+
+    @Test
+    public void testAppendLimit() {
+        assertEquals("SELECT * FROM b LIMIT 500", SqlUtil.limit("SELECT * FROM b;", 500));
+        assertEquals("SELECT * FROM b WHERE a IN (SELECT RAW x FROM c LIMIT 1000) LIMIT 500",
+                SqlUtil.limit("SELECT * FROM b WHERE a IN (SELECT RAW x FROM c LIMIT 1000)", 500));
+        assertEquals("SELECT `limit` FROM b WHERE t.limit > 1 LIMIT 10",
+                SqlUtil.limit("SELECT `limit` FROM b WHERE t.limit > 1", 10));
+    }
+
+    @Test
+    public void testTightenLimit() {
+        assertEquals("SELECT * FROM b LIMIT 500", SqlUtil.limit("SELECT * FROM b LIMIT 10000", 500));
+        assertEquals("SELECT * FROM b LIMIT 500 OFFSET 20", SqlUtil.limit("SELECT * FROM b limit 10000 OFFSET 20", 500));
+        assertEquals("SELECT * FROM b LIMIT 5", SqlUtil.limit("SELECT * FROM b LIMIT 5", 500));
+    }
+
+    @Test
+    public void testNotRewritten() {
+        assertEquals("SELECT * FROM b LIMIT $1", SqlUtil.limit("SELECT * FROM b LIMIT $1", 500));
+        assertEquals("SELECT * FROM b OFFSET 5", SqlUtil.limit("SELECT * FROM b OFFSET 5", 500));
+        assertEquals("SELECT * FROM b -- all", SqlUtil.limit("SELECT * FROM b -- all", 500));
+        assertEquals("UPDATE b SET a = 1", SqlUtil.limit("UPDATE b SET a = 1", 500));
+        assertEquals("SELECT * FROM b", SqlUtil.limit("SELECT * FROM b", 0));
+    }
+
+    @Test
+    public void testIsQuery() {
+        assertTrue(SqlUtil.isQuery(" (select 1)"));
+        assertTrue(SqlUtil.isQuery("WITH a AS (SELECT 1) SELECT a"));
+        assertTrue(SqlUtil.isQuery("explain SELECT * FROM b"));
+        assertFalse(SqlUtil.isQuery("UPDATE b SET a = 1 RETURNING a"));
+        assertFalse(SqlUtil.isQuery("CREATE INDEX i ON b(a)"));
+    }
+
+    @Test
+    public void testLeadingComments() {
+        assertTrue(SqlUtil.isQuery("/* hint */ SELECT 1"));
+        assertTrue(SqlUtil.isQuery("-- report\n-- daily\n(/* x */ select 1)"));
+        assertFalse(SqlUtil.isQuery("/* SELECT */ DELETE FROM b"));
+        assertEquals("", SqlUtil.firstKeyword("/* unterminated SELECT"));
+        assertEquals("-- report\nSELECT * FROM b LIMIT 500", SqlUtil.limit("-- report\nSELECT * FROM b", 500));
+        assertEquals("/* x */ SELECT * FROM b LIMIT 5", SqlUtil.limit("/* x */ SELECT * FROM b LIMIT 100", 5));
+    }
+}
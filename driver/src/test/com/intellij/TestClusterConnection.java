@@ -0,0 +1,35 @@
+package com.intellij;
+
+import com.couchbase.client.java.Cluster;
+import com.couchbase.client.java.env.ClusterEnvironment;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cluster connection without a cluster behind it, for tests that do not send requests.
+ */
+class TestClusterConnection extends ClusterConnection {
+    boolean closed;
+    final List<String> cancelledRequests = new CopyOnWriteArrayList<>();
+
+    TestClusterConnection() {
+        super((Cluster) null, (ClusterEnvironment) null);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public void cancelRequest(@NotNull String clientContextId) {
+        cancelledRequests.add(clientContextId);
+    }
+
+    @Override
+    void initConnection(@Nullable String defaultBucket) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.intellij.executor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class KeyValueStatementTest {
+    private static final Object[] PARAMETERS = new Object[]{"first", "second"};
+
+    @Test
+    public void testSelectUseKeys() {
+        KeyValueStatement statement = KeyValueStatement.parse("SELECT * FROM `travel-sample` USE KEYS ?");
+        assertNotNull(statement);
+        assertEquals(KeyValueStatement.Kind.GET, statement.kind);
+        assertEquals("travel-sample", statement.bucket);
+        assertNull(statement.scope);
+        assertEquals("travel-sample", statement.wrapperName);
+        assertEquals("first", statement.key.evaluate(PARAMETERS));
+    }
+
+    @Test
+    public void testSelectAliasStarFromCollection() {
+        KeyValueStatement statement = KeyValueStatement.parse("select t.* from default:b.s.c as t use keys 'doc1';");
+        assertNotNull(statement);
+        assertEquals("b", statement.bucket);
+        assertEquals("s", statement.scope);
+        assertEquals("c", statement.collection);
+        assertNull(statement.wrapperName);
+        assertEquals("doc1", statement.key.evaluate(PARAMETERS));
+    }
+
+    @Test
+    public void testSelectMetaId() {
+        KeyValueStatement statement = KeyValueStatement.parse("SELECT * FROM b.s.c WHERE META().id = $2");
+        assertNotNull(statement);
+        assertEquals("c", statement.wrapperName);
+        assertEquals("second", statement.key.evaluate(PARAMETERS));
+        assertNotNull(KeyValueStatement.parse("SELECT d.* FROM b d WHERE META(d).id = ?"));
+        assertNull(KeyValueStatement.parse("SELECT d.* FROM b d WHERE META(x).id = ?"));
+    }
+
+    @Test
+    public void testDelete() {
+        KeyValueStatement statement = KeyValueStatement.parse("DELETE FROM b USE KEYS \"k\"");
+        assertNotNull(statement);
+        assertEquals(KeyValueStatement.Kind.REMOVE, statement.kind);
+        assertEquals("k", statement.key.evaluate(PARAMETERS));
+    }
+
+    @Test
+    public void testUpsert() {
+        KeyValueStatement statement = KeyValueStatement.parse("UPSERT INTO b (KEY, VALUE) VALUES (?, ?)");
+        assertNotNull(statement);
+        assertEquals(KeyValueStatement.Kind.UPSERT, statement.kind);
+        assertEquals("first", statement.key.evaluate(PARAMETERS));
+        assertEquals("second", statement.value.evaluate(PARAMETERS));
+        statement = KeyValueStatement.parse("UPSERT INTO b (KEY, VALUE) VALUES ('k', ?)");
+        assertNotNull(statement);
+        assertEquals("first", statement.value.evaluate(PARAMETERS));
+    }
+
+    @Test
+    public void testSelectUseKeysArray() {
+        KeyValueStatement statement = KeyValueStatement.parse("SELECT * FROM b USE KEYS [\"a\", 'b' ,\"c\"]");
+        assertNotNull(statement);
+        assertEquals(Arrays.asList("a", "b", "c"), statement.key.evaluate(PARAMETERS));
+        statement = KeyValueStatement.parse("SELECT * FROM b USE KEYS []");
+        assertNotNull(statement);
+        assertEquals(Collections.emptyList(), statement.key.evaluate(PARAMETERS));
+        assertNull(KeyValueStatement.parse("SELECT * FROM b USE KEYS [1, 2]"));
+    }
+
+    @Test
+    public void testNotKeyValue() {
+        assertNull(KeyValueStatement.parse("SELECT name FROM b USE KEYS ?"));
+        assertNull(KeyValueStatement.parse("SELECT * FROM b WHERE name = ?"));
+        assertNull(KeyValueStatement.parse("SELECT * FROM b USE KEYS ? WHERE a = 1"));
+        assertNull(KeyValueStatement.parse("SELECT * FROM system:keyspaces USE KEYS ?"));
+        assertNull(KeyValueStatement.parse("SELECT x.* FROM b t USE KEYS ?"));
+        assertNull(KeyValueStatement.parse("DELETE FROM b WHERE a = 1"));
+    }
+}
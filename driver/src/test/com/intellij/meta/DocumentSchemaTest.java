@@ -0,0 +1,97 @@
+package com.intellij.meta;
+
+import com.couchbase.client.java.json.JsonArray;
+import com.intellij.meta.DocumentSchema.Type;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class DocumentSchemaTest {
+
+    @Test
+    public void testPaths() {
+        DocumentSchema schema = new DocumentSchema();
+        schema.add(json("{\"id\": 1, \"address\": {\"city\": \"Berlin\", \"geo\": {\"lat\": 52.5}}, \"a.b\": [1, {\"c\": 2}]}"));
+        assertEquals(Arrays.asList("id", "address", "address.city", "address.geo", "address.geo.lat", "a\\.b"),
+                names(schema.getColumns()));
+        assertEquals(Arrays.asList("integer", "object", "string", "object", "double", "array"),
+                schema.getColumns().stream().map(ColumnInfo::getTypeName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testTypeLattice() {
+        assertEquals(Type.LONG, Type.INTEGER.join(Type.LONG));
+        assertEquals(Type.NUMERIC, Type.LONG.join(Type.NUMERIC));
+        assertEquals(Type.NUMERIC, Type.INTEGER.join(Type.DOUBLE));
+        assertEquals(Type.STRING, Type.NULL.join(Type.STRING));
+        assertEquals(Type.STRING, Type.STRING.join(Type.NULL));
+        assertEquals(Type.JSON, Type.STRING.join(Type.INTEGER));
+        assertEquals(Type.JSON, Type.OBJECT.join(Type.ARRAY));
+        assertEquals(Type.JSON, Type.JSON.join(Type.NULL));
+
+        DocumentSchema schema = new DocumentSchema();
+        schema.add(json("{\"n\": null, \"v\": 1, \"m\": \"a\"}"));
+        schema.add(json("{\"n\": true, \"v\": 10000000000, \"m\": 2}"));
+        List<ColumnInfo> columns = schema.getColumns();
+        assertEquals("boolean", columns.get(0).getTypeName());
+        assertEquals("long", columns.get(1).getTypeName());
+        assertEquals(Types.BIGINT, columns.get(1).getType());
+        assertEquals("json", columns.get(2).getTypeName());
+        assertEquals(Types.OTHER, columns.get(2).getType());
+    }
+
+    @Test
+    public void testStability() {
+        DocumentSchema schema = new DocumentSchema();
+        assertTrue(schema.add(json("{\"a\": 1}")));
+        assertFalse(schema.add(json("{\"a\": 2}")));
+        assertFalse(schema.add(json("{\"a\": null}")));
+        assertEquals(2, schema.getStableCount());
+        assertTrue(schema.add(json("{\"a\": 3, \"b\": {\"c\": 1}}")));
+        assertEquals(0, schema.getStableCount());
+        assertTrue(schema.add(json("{\"a\": 2.5}")));
+        assertFalse(schema.add(json("{\"b\": {\"c\": 2}}")));
+        assertEquals(1, schema.getStableCount());
+        assertEquals(6, schema.getDocumentCount());
+
+        Map<String, Integer> frequencies = schema.getFrequencies();
+        assertEquals(Integer.valueOf(5), frequencies.get("a"));
+        assertEquals(Integer.valueOf(2), frequencies.get("b.c"));
+    }
+
+    @Test
+    public void testInferred() {
+        DocumentSchema schema = new DocumentSchema();
+        schema.addInferred(JsonArray.fromJson("[" +
+                "{\"#docs\": 80, \"Flavor\": \"type = \\\"user\\\"\", \"type\": \"object\", \"properties\": {" +
+                "\"name\": {\"#docs\": 80, \"%docs\": 100, \"type\": \"string\"}," +
+                "\"age\": {\"#docs\": 70, \"%docs\": 87.5, \"type\": [\"null\", \"number\"]}," +
+                "\"address\": {\"#docs\": 80, \"type\": \"object\", \"properties\": {" +
+                "\"city\": {\"#docs\": 80, \"type\": \"string\"}}}}}," +
+                "{\"#docs\": 20, \"Flavor\": \"\", \"type\": \"object\", \"properties\": {" +
+                "\"name\": {\"#docs\": 20, \"type\": \"number\"}," +
+                "\"tags\": {\"#docs\": 20, \"type\": \"array\", \"items\": {\"type\": \"string\"}}}}]"));
+        Map<String, String> types = schema.getColumns().stream()
+                .collect(Collectors.toMap(ColumnInfo::getName, ColumnInfo::getTypeName));
+        assertEquals(Map.of("name", "json", "age", "numeric", "address", "object", "address.city", "string",
+                "tags", "array"), types);
+        assertEquals(100, schema.getDocumentCount());
+        assertEquals(Integer.valueOf(100), schema.getFrequencies().get("name"));
+        assertEquals(Integer.valueOf(70), schema.getFrequencies().get("age"));
+    }
+
+    private static byte[] json(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> names(List<ColumnInfo> columns) {
+        return columns.stream().map(ColumnInfo::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,35 @@
+package com.intellij.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void testBucketBounds() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = Histogram.indexOf(value);
+            assertTrue(value + " above its bucket", value <= Histogram.upperBoundOf(index));
+            assertTrue(value + " below its bucket", index == 0 || value > Histogram.upperBoundOf(index - 1));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        long p50 = histogram.getPercentile(50);
+        assertTrue(String.valueOf(p50), p50 >= 500 && p50 <= 500 * 1.125);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(String.valueOf(p99), p99 >= 990 && p99 <= 1000);
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+}
@@ -0,0 +1,47 @@
+package com.intellij.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RateMeterTest {
+
+    @Test
+    public void testRateOverWindow() {
+        RateMeter meter = new RateMeter();
+        for (long second = 1000; second < 1060; second++) {
+            for (int i = 0; i < 3; i++) {
+                meter.mark(second);
+            }
+        }
+        assertEquals(3.0, meter.getRate(1060), 0.001);
+        // the current second is incomplete and not counted
+        meter.mark(1060);
+        assertEquals(3.0, meter.getRate(1060), 0.001);
+        assertEquals(91.0 / 60, meter.getRate(1090), 0.001);
+        assertEquals(0.0, meter.getRate(2000), 0.001);
+    }
+
+    @Test
+    public void testConcurrentRotationKeepsMarks() throws InterruptedException {
+        RateMeter meter = new RateMeter();
+        // second 939 occupies the slot of second 1000
+        meter.mark(939);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    meter.mark(1000);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80_000.0 / 60, meter.getRate(1001), 0.001);
+        // a late mark of an expired second does not rotate the slot back
+        meter.mark(939);
+        assertEquals(80_000.0 / 60, meter.getRate(1001), 0.001);
+    }
+}
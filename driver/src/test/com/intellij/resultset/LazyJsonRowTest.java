@@ -0,0 +1,47 @@
+package com.intellij.resultset;
+
+import com.couchbase.client.core.error.DecodingFailureException;
+import com.couchbase.client.java.json.JsonArray;
+import com.couchbase.client.java.json.JsonObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LazyJsonRowTest {
+
+    private static LazyJsonRow row(String json) {
+        return new LazyJsonRow(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFields() {
+        LazyJsonRow row = row("{\"s\": \"a\\\"b\", \"i\": 42, \"d\": 1.5, \"b\": true, \"n\": null, " +
+                "\"o\": {\"x\": [1, {\"y\": \"}\"}]}, \"a\": [\"p\", 2]}");
+        assertEquals(Arrays.asList("s", "i", "d", "b", "n", "o", "a"), Arrays.asList(row.getNames().toArray()));
+        assertEquals(7, row.size());
+        assertEquals("a\"b", row.get("s"));
+        assertEquals(42, row.get("i"));
+        assertEquals(1.5, row.get("d"));
+        assertEquals(Boolean.TRUE, row.get("b"));
+        assertNull(row.get("n"));
+        assertNull(row.get("missing"));
+        assertEquals(JsonObject.fromJson("{\"x\": [1, {\"y\": \"}\"}]}"), row.get("o"));
+        assertEquals(JsonArray.from("p", 2), row.get("a"));
+        assertSame(row.get("o"), row.get("o"));
+    }
+
+    @Test
+    public void testToMap() {
+        LazyJsonRow row = row("{\"name\": \"airline\", \"id\": 10}");
+        assertEquals(JsonObject.create().put("name", "airline").put("id", 10).toMap(), row.toMap());
+        assertEquals("{\"name\": \"airline\", \"id\": 10}", row.toString());
+    }
+
+    @Test(expected = DecodingFailureException.class)
+    public void testNotObject() {
+        row("[1, 2]");
+    }
+}
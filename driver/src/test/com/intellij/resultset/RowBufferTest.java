@@ -0,0 +1,153 @@
+package com.intellij.resultset;
+
+import com.intellij.CouchbaseFetchMetrics;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class RowBufferTest {
+
+    @Test
+    public void testRowsInOrder() {
+        RowBuffer<Integer> buffer = new RowBuffer<>(Flux.range(0, 1000), i -> 10, 64,
+                new RowBuffer.Watermarks(8, 128, 1024, 4096));
+        List<Integer> rows = new ArrayList<>();
+        while (buffer.hasNext()) {
+            rows.add(buffer.next());
+        }
+        assertEquals(1000, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(i, rows.get(i).intValue());
+        }
+        assertEquals(0, buffer.getBufferedRows());
+        assertEquals(0, buffer.getBufferedBytes());
+    }
+
+    @Test
+    public void testDemandIsBoundedByHighWatermark() {
+        AtomicLong requested = new AtomicLong();
+        AtomicLong emitted = new AtomicLong();
+        Flux<Integer> source = Flux.range(0, 10_000)
+                .doOnRequest(requested::addAndGet)
+                .doOnNext(i -> emitted.incrementAndGet());
+        RowBuffer<Integer> buffer = new RowBuffer<>(source, i -> 100, 64,
+                new RowBuffer.Watermarks(8, 128, 1_000, 1_000_000));
+        assertTrue(buffer.hasNext());
+        for (int i = 0; i < 100; i++) {
+            buffer.next();
+        }
+        assertTrue(requested.get() - 100 <= 128);
+        assertTrue(buffer.getMaxBufferedRows() <= 128);
+        buffer.close();
+        assertFalse(buffer.hasNext());
+    }
+
+    @Test
+    public void testByteWatermarkDefersRequests() {
+        AtomicLong requested = new AtomicLong();
+        Flux<Integer> source = Flux.range(0, 10_000).doOnRequest(requested::addAndGet);
+        RowBuffer<Integer> buffer = new RowBuffer<>(source, i -> 1_000, 32,
+                new RowBuffer.Watermarks(16, 1024, 4_000, 8_000));
+        buffer.next();
+        // 31 rows of 1000 bytes stay buffered, more than the low watermark of bytes
+        assertEquals(32, requested.get());
+        assertTrue(buffer.getRequestSize() < 32);
+    }
+
+    @Test
+    public void testByteBudget() {
+        AtomicLong requested = new AtomicLong();
+        Flux<Integer> source = Flux.range(0, 1000).doOnRequest(requested::addAndGet);
+        RowBuffer<Integer> buffer = new RowBuffer<>(source, i -> 1_000, 4,
+                new RowBuffer.Watermarks(16, 1024, 1_000_000, 1_000_000, 10_000));
+        assertEquals(4, requested.get());
+        int count = 0;
+        while (buffer.hasNext()) {
+            buffer.next();
+            count++;
+            assertTrue(requested.get() - count <= 10);
+        }
+        assertEquals(1000, count);
+        assertEquals(1_000, buffer.getAverageRowBytes());
+        assertTrue(buffer.getMaxBufferedBytes() <= 10_000);
+    }
+
+    @Test
+    public void testFirstRequestIsFetchSize() {
+        for (int fetchSize : new int[]{1, 5, 256, 4096}) {
+            AtomicLong requested = new AtomicLong();
+            Flux<Integer> source = Flux.<Integer>never().doOnRequest(requested::addAndGet);
+            new RowBuffer<>(source, i -> 1_000, fetchSize,
+                    new RowBuffer.Watermarks(16, 2048, 1_048_576, 8_388_608)).close();
+            assertEquals("First request for fetch size " + fetchSize, fetchSize, requested.get());
+        }
+    }
+
+    @Test
+    public void testFetchSizeFollowsProbeRow() {
+        for (int fetchSize : new int[]{1, 5, 256, 4096}) {
+            AtomicLong requested = new AtomicLong();
+            Sinks.Many<Integer> rows = Sinks.many().unicast().onBackpressureBuffer();
+            RowBuffer<Integer> buffer = new RowBuffer<>(rows.asFlux().doOnRequest(requested::addAndGet), i -> 1_000,
+                    fetchSize, new RowBuffer.Watermarks(16, 2048, 1_048_576, 8_388_608, 33_554_432));
+            assertEquals("Probe for fetch size " + fetchSize, 1, requested.get());
+            rows.tryEmitNext(0);
+            assertEquals("Requests for fetch size " + fetchSize, fetchSize, requested.get());
+            buffer.close();
+        }
+    }
+
+    @Test
+    public void testLargeRowsStayWithinByteBudget() {
+        long rowBytes = 5_000_000;
+        long budget = 32 << 20;
+        AtomicLong requested = new AtomicLong();
+        Flux<Integer> source = Flux.range(0, 100).doOnRequest(requested::addAndGet);
+        RowBuffer<Integer> buffer = new RowBuffer<>(source, i -> rowBytes, 256,
+                new RowBuffer.Watermarks(16, 2048, 1_048_576, 16_777_216, budget));
+        int consumed = 0;
+        assertTrue((requested.get() - consumed) * rowBytes <= budget);
+        while (buffer.hasNext()) {
+            buffer.next();
+            consumed++;
+            assertTrue("Requested " + requested.get() + " rows after " + consumed,
+                    (requested.get() - consumed) * rowBytes <= budget);
+        }
+        assertEquals(100, consumed);
+        assertTrue(buffer.getMaxBufferedBytes() <= budget);
+    }
+
+    @Test
+    public void testStallsAreMeasured() {
+        Sinks.Many<Integer> rows = Sinks.many().unicast().onBackpressureBuffer();
+        RowBuffer<Integer> buffer = new RowBuffer<>(rows.asFlux(), i -> 10, 16,
+                new RowBuffer.Watermarks(8, 128, 1024, 4096));
+        Schedulers.parallel().schedule(() -> {
+            rows.tryEmitNext(1);
+            rows.tryEmitComplete();
+        }, 50, TimeUnit.MILLISECONDS);
+        assertTrue(buffer.hasNext());
+        CouchbaseFetchMetrics metrics = buffer.getMetrics();
+        assertEquals(1, metrics.getStallCount());
+        assertTrue(metrics.getStallTime().toMillis() > 0);
+        assertEquals(1, metrics.getMaxBufferedRows());
+        assertEquals(10, metrics.getMaxBufferedBytes());
+        assertEquals(10, metrics.getAverageRowBytes());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testErrorIsPropagated() {
+        RowBuffer<Integer> buffer = new RowBuffer<>(Flux.concat(Flux.just(1), Flux.error(new IllegalStateException())),
+                i -> 0, 16, new RowBuffer.Watermarks(1, 16, 0, 0));
+        assertEquals(1, buffer.next().intValue());
+        buffer.hasNext();
+    }
+}